@@ -11,23 +11,31 @@ package com.jakarta.udb.agencetransportpart3;
 
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
 
+/**
+ * Access to the pooled datasource declared in glassfish-resources.xml
+ */
 public class Database {
-    private static final String URL = "jdbc:mysql://localhost:3306/reservationdb"; // change selon ton nom de BDD
-    private static final String USER = "TEST"; // ton user
-    private static final String PASSWORD = "TEST"; // ton mot de passe
+    private static final String DATASOURCE = "java:app/agence_transport_reservations";
 
-    static {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver"); // driver MySQL
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-        }
-    }
+    private static volatile DataSource dataSource;
 
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return getDataSource().getConnection();
+    }
+
+    private static DataSource getDataSource() throws SQLException {
+        if (dataSource == null) {
+            try {
+                dataSource = (DataSource) new InitialContext().lookup(DATASOURCE);
+            } catch (NamingException e) {
+                throw new SQLException("Datasource " + DATASOURCE + " not found", e);
+            }
+        }
+        return dataSource;
     }
 }
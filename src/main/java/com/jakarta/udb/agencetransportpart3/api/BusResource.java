@@ -6,6 +6,7 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -20,15 +21,42 @@ public class BusResource {
     @Inject
     private BusService busService;
 
+    /**
+     * All buses, a page of them, or with ?ids=1,2,3 the given ones in a
+     * single call
+     */
     @GET
-    public Response getAll() {
+    public Response getAll(@QueryParam("ids") String ids,
+            @QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        if (ids != null) {
+            List<Long> wanted = new ArrayList<>();
+            try {
+                for (String id : ids.split(",")) {
+                    if (!id.isBlank()) {
+                        wanted.add(Long.parseLong(id.trim()));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(Map.of("error", "Invalid ids: " + ids)).build();
+            }
+            return Response.ok(busService.findByIds(wanted)).build();
+        }
+        if (Pages.requested(after, limit)) {
+            int size = Pages.limit(limit);
+            return Pages.ok(busService.findPage(after, size), size, Bus::getId);
+        }
         List<Bus> list = busService.findAll();
         return Response.ok(list).build();
     }
 
     @GET
     @Path("/disponibles")
-    public Response getAvailable() {
+    public Response getAvailable(@QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        if (Pages.requested(after, limit)) {
+            int size = Pages.limit(limit);
+            return Pages.ok(busService.findAvailablePage(after, size), size, Bus::getId);
+        }
         List<Bus> list = busService.findAvailable();
         return Response.ok(list).build();
     }
@@ -0,0 +1,93 @@
+package com.jakarta.udb.agencetransportpart3.api;
+
+import com.jakarta.udb.agencetransportpart3.service.ChangeEvent;
+import com.jakarta.udb.agencetransportpart3.service.ChangeFeed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * REST API for the trajet and reservation change feed.
+ * Consumers keep the sequence of the last event they processed and ask
+ * only for what follows, instead of polling the full lists.
+ */
+@Path("/changes")
+@Produces(MediaType.APPLICATION_JSON)
+public class ChangeResource {
+
+    static final String LAST_SEQUENCE = "X-Last-Sequence";
+
+    @Inject
+    private ChangeFeed changeFeed;
+
+    /**
+     * Up to "limit" events after "since" (0 for the start of the feed); the
+     * X-Last-Sequence header is the value to pass as the next "since".
+     * 410 Gone means events after "since" are no longer buffered: reload
+     * the full lists, then continue from X-Last-Sequence.
+     */
+    @GET
+    public Response getChanges(@QueryParam("since") @DefaultValue("0") long since,
+            @QueryParam("limit") Integer limit) {
+        if (!changeFeed.isAvailable(since)) {
+            return Response.status(Response.Status.GONE)
+                    .header(LAST_SEQUENCE, changeFeed.getLastSequence())
+                    .entity("{\"error\":\"Changes after " + since + " are no longer available\"}")
+                    .build();
+        }
+        List<ChangeEvent> events = changeFeed.since(since, Pages.limit(limit));
+        long last = events.isEmpty() ? since : events.get(events.size() - 1).getSequence();
+        return Response.ok(events).header(LAST_SEQUENCE, last).build();
+    }
+
+    /**
+     * Server-Sent Events: one event per change, named after its type, with
+     * the sequence as event id so a reconnecting client resumes through
+     * Last-Event-ID. Without it or "since", only new changes are sent. An
+     * "overflow" event ends the stream when the client fell too far behind.
+     */
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS + ";qs=0.5")
+    public void streamChanges(@Context SseEventSink sink, @Context Sse sse,
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId,
+            @QueryParam("since") Long since) {
+        Long start = since;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                start = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // Not one of ours: stream new changes only
+            }
+        }
+
+        changeFeed.subscribe(start, new ChangeFeed.Listener() {
+            @Override
+            public void onChange(ChangeEvent event) {
+                if (sink.isClosed()) {
+                    throw new IllegalStateException("Change stream closed by client");
+                }
+                sink.send(sse.newEventBuilder()
+                        .id(String.valueOf(event.getSequence()))
+                        .name(event.getType().name().toLowerCase(Locale.ROOT))
+                        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                        .data(ChangeEvent.class, event)
+                        .build());
+            }
+
+            @Override
+            public void onOverflow() {
+                if (!sink.isClosed()) {
+                    sink.send(sse.newEvent("overflow", String.valueOf(changeFeed.getLastSequence())));
+                    sink.close();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.jakarta.udb.agencetransportpart3.api;
+
+import com.jakarta.udb.agencetransportpart3.service.ChangeEvent;
+import com.jakarta.udb.agencetransportpart3.service.ChangeFeed;
+import com.jakarta.udb.agencetransportpart3.service.ReportService;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Single change feed subscription shared by every dashboard stream.
+ * Changed rows are broadcast as they come; counters are computed once per
+ * run of changes, whatever the number of connected pages.
+ */
+@ApplicationScoped
+public class DashboardBroadcaster implements ChangeFeed.Listener {
+
+    static final String COUNTS = "counts";
+    static final String RESET = "reset";
+
+    @Inject
+    private ChangeFeed changeFeed;
+
+    @Inject
+    private ReportService reportService;
+
+    // Guarded by this; created with the first connection, which brings the Sse
+    private Sse sse;
+    private SseBroadcaster broadcaster;
+    private ChangeFeed.Subscription subscription;
+
+    /**
+     * Send the current counters to a new page, then keep it up to date
+     */
+    synchronized void register(SseEventSink sink, Sse sse) {
+        if (broadcaster == null) {
+            this.sse = sse;
+            broadcaster = sse.newBroadcaster();
+            subscription = changeFeed.subscribe(null, this);
+        }
+        sink.send(countsEvent());
+        broadcaster.register(sink);
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        broadcast(sse.newEventBuilder()
+                .id(String.valueOf(event.getSequence()))
+                .name(event.getEntityType().toLowerCase(Locale.ROOT))
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(ChangeEvent.class, event)
+                .build());
+    }
+
+    @Override
+    public void onIdle() {
+        broadcast(countsEvent());
+    }
+
+    /**
+     * The feed dropped events before they were pushed: pages cannot patch
+     * themselves reliably any more and are told to reload
+     */
+    @Override
+    public synchronized void onOverflow() {
+        broadcaster.broadcast(sse.newEvent(RESET, String.valueOf(changeFeed.getLastSequence())));
+        subscription = changeFeed.subscribe(null, this);
+    }
+
+    private synchronized void broadcast(OutboundSseEvent event) {
+        broadcaster.broadcast(event);
+    }
+
+    private OutboundSseEvent countsEvent() {
+        Map<String, Long> counts = reportService.generateDashboardCounts();
+        return sse.newEventBuilder()
+                .name(COUNTS)
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(Map.class, counts)
+                .build();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (subscription != null) {
+            subscription.close();
+            broadcaster.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.jakarta.udb.agencetransportpart3.api;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Parsing of the "from"/"to" query parameters of date-range endpoints.
+ * Values are ISO dates or date-times; both bounds are inclusive.
+ */
+final class DateParams {
+
+    private DateParams() {
+    }
+
+    /**
+     * A date alone covers the whole day: start of day for "from", end of day for "to".
+     * Throws DateTimeParseException on an invalid value.
+     */
+    static LocalDateTime parse(String value, boolean endOfDay) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        if (value.contains("T")) {
+            return LocalDateTime.parse(value);
+        }
+        LocalDate date = LocalDate.parse(value);
+        return endOfDay ? date.atTime(LocalTime.MAX) : date.atStartOfDay();
+    }
+
+    /**
+     * Throws IllegalArgumentException when both bounds are given and "from" is after "to"
+     */
+    static void checkOrder(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+    }
+}
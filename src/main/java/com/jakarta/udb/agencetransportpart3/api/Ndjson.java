@@ -0,0 +1,77 @@
+package com.jakarta.udb.agencetransportpart3.api;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Newline-delimited JSON (one object per line) for the bulk and streaming
+ * endpoints. Input is parsed line by line and output written element by
+ * element, so no whole-array document is ever built in memory.
+ */
+final class Ndjson {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    /**
+     * For GET alternatives of JSON endpoints: the lower server quality keeps
+     * JSON the default for clients that accept any type
+     */
+    static final String ALTERNATIVE = MEDIA_TYPE + ";qs=0.5";
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    private Ndjson() {
+    }
+
+    /**
+     * Parse every non-blank line; fails on the first invalid one
+     */
+    static <T> List<T> readAll(InputStream input, Class<T> type) throws IOException {
+        List<T> items = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                items.add(JSONB.fromJson(line, type));
+            } catch (JsonbException e) {
+                throw new IllegalArgumentException("Invalid JSON on line " + lineNumber);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Write each element on its own line; the stream is closed afterwards
+     */
+    static <T> StreamingOutput write(Stream<T> items) {
+        return output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            try (items) {
+                for (T item : (Iterable<T>) items::iterator) {
+                    writer.write(JSONB.toJson(item));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.jakarta.udb.agencetransportpart3.api;
+
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination for list endpoints: {@code ?after=<id>&limit=<n>}.
+ * A full page carries the id to pass as the next {@code after} in the
+ * {@value #NEXT_CURSOR} header; the last page has no such header.
+ */
+final class Pages {
+
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private Pages() {
+    }
+
+    /**
+     * Whether the request asks for a page rather than the full list
+     */
+    static boolean requested(Long after, Integer limit) {
+        return after != null || limit != null;
+    }
+
+    static int limit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    static <T> Response ok(List<T> page, int limit, Function<T, Long> idGetter) {
+        return ok(page, limit, idGetter, false);
+    }
+
+    /**
+     * The page as JSON, or as NDJSON when {@code ndjson} is set; both carry the cursor header
+     */
+    static <T> Response ok(List<T> page, int limit, Function<T, Long> idGetter, boolean ndjson) {
+        Response.ResponseBuilder response = Response.ok(ndjson ? Ndjson.write(page.stream()) : page);
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR, idGetter.apply(page.get(page.size() - 1)));
+        }
+        return response.build();
+    }
+}
@@ -5,6 +5,10 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 /**
  * REST API for Reports
@@ -17,30 +21,59 @@ public class ReportResource {
     private ReportService reportService;
 
     /**
-     * Get summary report
+     * Get summary report, optionally restricted to departures between
+     * "from" and "to" (ISO date or date-time, both inclusive)
      */
     @GET
     @Path("/summary")
-    public Response getSummaryReport() {
-        return Response.ok(reportService.generateSummaryReport()).build();
+    public Response getSummaryReport(@QueryParam("from") String from, @QueryParam("to") String to) {
+        return ranged(from, to, reportService::generateSummaryReport, reportService::generateSummaryReport);
     }
 
     /**
-     * Get report by bus
+     * Get report by bus, optionally restricted to trajets departing between
+     * "from" and "to" (ISO date or date-time, both inclusive). Without a
+     * range it covers live trajets only; a range includes archived ones.
      */
     @GET
     @Path("/by-bus")
-    public Response getReportByBus() {
-        return Response.ok(reportService.generateReportByBus()).build();
+    public Response getReportByBus(@QueryParam("from") String from, @QueryParam("to") String to) {
+        return ranged(from, to, reportService::generateReportByBus, reportService::generateReportByBus);
     }
 
     /**
-     * Get report by chauffeur
+     * Stream report by bus as NDJSON, one row per line, with the same
+     * "from"/"to" filter as the JSON variant
+     */
+    @GET
+    @Path("/by-bus")
+    @Produces(Ndjson.ALTERNATIVE)
+    public Response streamReportByBus(@QueryParam("from") String from, @QueryParam("to") String to) {
+        return ranged(from, to, () -> Ndjson.write(reportService.streamReportByBus()),
+                (start, end) -> Ndjson.write(reportService.streamReportByBus(start, end)));
+    }
+
+    /**
+     * Get report by chauffeur, optionally restricted to trajets departing between
+     * "from" and "to" (ISO date or date-time, both inclusive). Without a
+     * range it covers live trajets only; a range includes archived ones.
+     */
+    @GET
+    @Path("/by-chauffeur")
+    public Response getReportByChauffeur(@QueryParam("from") String from, @QueryParam("to") String to) {
+        return ranged(from, to, reportService::generateReportByChauffeur, reportService::generateReportByChauffeur);
+    }
+
+    /**
+     * Stream report by chauffeur as NDJSON, one row per line, with the same
+     * "from"/"to" filter as the JSON variant
      */
     @GET
     @Path("/by-chauffeur")
-    public Response getReportByChauffeur() {
-        return Response.ok(reportService.generateReportByChauffeur()).build();
+    @Produces(Ndjson.ALTERNATIVE)
+    public Response streamReportByChauffeur(@QueryParam("from") String from, @QueryParam("to") String to) {
+        return ranged(from, to, () -> Ndjson.write(reportService.streamReportByChauffeur()),
+                (start, end) -> Ndjson.write(reportService.streamReportByChauffeur(start, end)));
     }
 
     /**
@@ -51,4 +84,37 @@ public class ReportResource {
     public Response getReservationsWithTrajets() {
         return Response.ok(reportService.getReservationsWithTrajets()).build();
     }
+
+    /**
+     * Stream reservations with trajets as NDJSON, one row per line
+     */
+    @GET
+    @Path("/reservations-with-trajets")
+    @Produces(Ndjson.ALTERNATIVE)
+    public Response streamReservationsWithTrajets() {
+        return Response.ok(Ndjson.write(reportService.streamReservationsWithTrajets())).build();
+    }
+
+    /**
+     * Report selection shared by the JSON and NDJSON representations: the
+     * whole report without "from"/"to", otherwise the report for that range
+     */
+    private static Response ranged(String from, String to, Supplier<Object> all,
+            BiFunction<LocalDateTime, LocalDateTime, Object> between) {
+        if (from == null && to == null) {
+            return Response.ok(all.get()).build();
+        }
+        try {
+            LocalDateTime start = DateParams.parse(from, false);
+            LocalDateTime end = DateParams.parse(to, true);
+            DateParams.checkOrder(start, end);
+            return Response.ok(between.apply(start, end)).build();
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"Invalid date: " + e.getParsedString() + "\"}").build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"" + e.getMessage() + "\"}").build();
+        }
+    }
 }
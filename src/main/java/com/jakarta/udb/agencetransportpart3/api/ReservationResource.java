@@ -2,10 +2,17 @@ package com.jakarta.udb.agencetransportpart3.api;
 
 import com.jakarta.udb.agencetransportpart3.entity.Reservation;
 import com.jakarta.udb.agencetransportpart3.service.ReservationService;
+import com.jakarta.udb.agencetransportpart3.service.VersionConflictException;
 import jakarta.inject.Inject;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.bind.JsonbException;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -20,33 +27,80 @@ public class ReservationResource {
     private ReservationService reservationService;
 
     /**
-     * Get all reservations
+     * Get all reservations, or a page of them when "after"/"limit" are given
      */
     @GET
-    public Response getAllReservations() {
+    public Response getAllReservations(@QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectReservations(after, limit, false);
+    }
+
+    /**
+     * Same selection as getAllReservations, as NDJSON; the full list is
+     * written as it is iterated
+     */
+    @GET
+    @Produces(Ndjson.ALTERNATIVE)
+    public Response streamReservations(@QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectReservations(after, limit, true);
+    }
+
+    /**
+     * Selection shared by the JSON and NDJSON representations of /reservations
+     */
+    private Response selectReservations(Long after, Integer limit, boolean ndjson) {
+        if (Pages.requested(after, limit)) {
+            int size = Pages.limit(limit);
+            return Pages.ok(reservationService.findPage(after, size), size, Reservation::getId, ndjson);
+        }
+        if (ndjson) {
+            return Response.ok(Ndjson.write(reservationService.streamAll())).build();
+        }
         List<Reservation> reservations = reservationService.findAll();
         return Response.ok(reservations).build();
     }
 
     /**
-     * Get reservation by ID
+     * Get reservation by ID, archived ones included
      */
     @GET
     @Path("/{id}")
     public Response getReservation(@PathParam("id") Long id) {
-        Reservation reservation = reservationService.findById(id);
+        Reservation reservation = reservationService.findByIdIncludingArchive(id);
         if (reservation == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
-        return Response.ok(reservation).build();
+        return Versions.ok(reservation);
     }
 
     /**
-     * Get reservations by status
+     * Get reservations by status, or a page of them when "after"/"limit" are given
      */
     @GET
     @Path("/status/{status}")
-    public Response getReservationsByStatus(@PathParam("status") String status) {
+    public Response getReservationsByStatus(@PathParam("status") String status,
+            @QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectReservationsByStatus(status, after, limit, false);
+    }
+
+    /**
+     * Same selection as getReservationsByStatus, as NDJSON
+     */
+    @GET
+    @Path("/status/{status}")
+    @Produces(Ndjson.ALTERNATIVE)
+    public Response streamReservationsByStatus(@PathParam("status") String status,
+            @QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectReservationsByStatus(status, after, limit, true);
+    }
+
+    private Response selectReservationsByStatus(String status, Long after, Integer limit, boolean ndjson) {
+        if (Pages.requested(after, limit)) {
+            int size = Pages.limit(limit);
+            return Pages.ok(reservationService.findByStatusPage(status, after, size), size, Reservation::getId, ndjson);
+        }
+        if (ndjson) {
+            return Response.ok(Ndjson.write(reservationService.streamByStatus(status))).build();
+        }
         List<Reservation> reservations = reservationService.findByStatus(status);
         return Response.ok(reservations).build();
     }
@@ -66,19 +120,84 @@ public class ReservationResource {
     }
 
     /**
-     * Update a reservation
+     * Create reservations in bulk from NDJSON (one reservation per line).
+     * The whole batch is persisted in one write; the created reservations are
+     * streamed back as NDJSON.
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes(Ndjson.MEDIA_TYPE)
+    @Produces(Ndjson.MEDIA_TYPE)
+    public Response createReservations(InputStream body) {
+        List<Reservation> reservations;
+        try {
+            reservations = Ndjson.readAll(body, Reservation.class);
+        } catch (IllegalArgumentException | IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"" + e.getMessage() + "\"}").build();
+        }
+        List<Reservation> created = reservationService.createReservations(reservations);
+        return Response.status(Response.Status.CREATED).entity(Ndjson.write(created.stream())).build();
+    }
+
+    /**
+     * Update a reservation; with an If-Match header (the ETag returned by GET) the
+     * update only succeeds if nobody changed it since, otherwise 412
      */
     @PUT
     @Path("/{id}")
-    public Response updateReservation(@PathParam("id") Long id, Reservation reservation) {
+    public Response updateReservation(@PathParam("id") Long id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, Reservation reservation) {
         Reservation existing = reservationService.findById(id);
         if (existing == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
         reservation.setId(id);
-        Reservation updated = reservationService.updateReservation(reservation);
-        return Response.ok(updated).build();
+        if (!Versions.applyIfMatch(ifMatch, reservation)) {
+            return Versions.preconditionFailed(existing.getVersion() == null ? 0L : existing.getVersion());
+        }
+        try {
+            Reservation updated = reservationService.updateReservation(reservation);
+            return Versions.ok(updated);
+        } catch (VersionConflictException e) {
+            return Versions.preconditionFailed(e.getCurrentVersion());
+        }
+    }
+
+    /**
+     * Partially update a reservation with a JSON Merge Patch (RFC 7396): only the
+     * fields present are changed, a null removes a value. A "version" field
+     * or an If-Match header makes the update conditional, as for PUT.
+     */
+    @PATCH
+    @Path("/{id}")
+    @Consumes({Versions.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON})
+    public Response patchReservation(@PathParam("id") Long id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, JsonObject patch) {
+        Long expectedVersion;
+        try {
+            expectedVersion = Versions.expectedVersion(ifMatch);
+        } catch (NumberFormatException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).build();
+        }
+        if (expectedVersion == null && patch.get("version") instanceof JsonNumber) {
+            expectedVersion = patch.getJsonNumber("version").longValue();
+        }
+
+        try {
+            Reservation patched = reservationService.patchReservation(id, patch, expectedVersion);
+            if (patched == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Versions.ok(patched);
+        } catch (VersionConflictException e) {
+            return Versions.preconditionFailed(e.getCurrentVersion());
+        } catch (JsonbException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\":\"Invalid patch\"}").build();
+        }
     }
 
     /**
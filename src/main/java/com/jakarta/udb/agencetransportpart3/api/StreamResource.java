@@ -0,0 +1,33 @@
+package com.jakarta.udb.agencetransportpart3.api;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * Server-Sent Event streams for the JSF pages
+ */
+@Path("/stream")
+public class StreamResource {
+
+    @Inject
+    private DashboardBroadcaster dashboardBroadcaster;
+
+    /**
+     * Live dashboard: a "counts" event with every counter on connection and
+     * after each run of changes, plus a "trajet" or "reservation" event (a
+     * change feed event carrying the new row) per change. A "reset" event
+     * asks the page to reload.
+     */
+    @GET
+    @Path("/dashboard")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamDashboard(@Context SseEventSink sink, @Context Sse sse) {
+        dashboardBroadcaster.register(sink, sse);
+    }
+}
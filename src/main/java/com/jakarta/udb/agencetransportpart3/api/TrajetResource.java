@@ -2,10 +2,19 @@ package com.jakarta.udb.agencetransportpart3.api;
 
 import com.jakarta.udb.agencetransportpart3.entity.Trajet;
 import com.jakarta.udb.agencetransportpart3.service.TrajetService;
+import com.jakarta.udb.agencetransportpart3.service.VersionConflictException;
 import jakarta.inject.Inject;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.bind.JsonbException;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 /**
@@ -20,39 +29,110 @@ public class TrajetResource {
     private TrajetService trajetService;
 
     /**
-     * Get all trajets
+     * Get all trajets, those departing between "from" and "to" when given
+     * (ISO date or date-time, both inclusive), or a page of them when
+     * "after"/"limit" are given (see Pages). A date range cannot be
+     * combined with pagination.
      */
     @GET
-    public Response getAllTrajets() {
-        List<Trajet> trajets = trajetService.findAll();
-        return Response.ok(trajets).build();
+    public Response getAllTrajets(@QueryParam("from") String from, @QueryParam("to") String to,
+            @QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectTrajets(from, to, after, limit, false);
     }
 
     /**
-     * Get trajet by ID
+     * Same selection as getAllTrajets, as NDJSON; the full list is written
+     * as it is iterated
+     */
+    @GET
+    @Produces(Ndjson.ALTERNATIVE)
+    public Response streamTrajets(@QueryParam("from") String from, @QueryParam("to") String to,
+            @QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectTrajets(from, to, after, limit, true);
+    }
+
+    /**
+     * Selection shared by the JSON and NDJSON representations of /trajets
+     */
+    private Response selectTrajets(String from, String to, Long after, Integer limit, boolean ndjson) {
+        if (from == null && to == null) {
+            if (Pages.requested(after, limit)) {
+                int size = Pages.limit(limit);
+                return Pages.ok(trajetService.findPage(after, size), size, Trajet::getId, ndjson);
+            }
+            if (ndjson) {
+                return Response.ok(Ndjson.write(trajetService.streamAll())).build();
+            }
+            List<Trajet> trajets = trajetService.findAll();
+            return Response.ok(trajets).build();
+        }
+        if (Pages.requested(after, limit)) {
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"from/to cannot be combined with after/limit\"}").build();
+        }
+        try {
+            LocalDateTime start = DateParams.parse(from, false);
+            LocalDateTime end = DateParams.parse(to, true);
+            DateParams.checkOrder(start, end);
+            List<Trajet> trajets = trajetService.findByDepartureBetween(start, end);
+            return Response.ok(ndjson ? Ndjson.write(trajets.stream()) : trajets).build();
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"Invalid date: " + e.getParsedString() + "\"}").build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"" + e.getMessage() + "\"}").build();
+        }
+    }
+
+    /**
+     * Get trajet by ID, archived ones included
      */
     @GET
     @Path("/{id}")
     public Response getTrajet(@PathParam("id") Long id) {
-        Trajet trajet = trajetService.findById(id);
+        Trajet trajet = trajetService.findByIdIncludingArchive(id);
         if (trajet == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
-        return Response.ok(trajet).build();
+        return Versions.ok(trajet);
+    }
+
+    /**
+     * Get trajets by status, or a page of them when "after"/"limit" are given
+     */
+    @GET
+    @Path("/status/{status}")
+    public Response getTrajetsByStatus(@PathParam("status") String status,
+            @QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectTrajetsByStatus(status, after, limit, false);
     }
 
     /**
-     * Get trajets by status
+     * Same selection as getTrajetsByStatus, as NDJSON
      */
     @GET
     @Path("/status/{status}")
-    public Response getTrajetsByStatus(@PathParam("status") String status) {
+    @Produces(Ndjson.ALTERNATIVE)
+    public Response streamTrajetsByStatus(@PathParam("status") String status,
+            @QueryParam("after") Long after, @QueryParam("limit") Integer limit) {
+        return selectTrajetsByStatus(status, after, limit, true);
+    }
+
+    private Response selectTrajetsByStatus(String status, Long after, Integer limit, boolean ndjson) {
+        if (Pages.requested(after, limit)) {
+            int size = Pages.limit(limit);
+            return Pages.ok(trajetService.findByStatusPage(status, after, size), size, Trajet::getId, ndjson);
+        }
+        if (ndjson) {
+            return Response.ok(Ndjson.write(trajetService.streamByStatus(status))).build();
+        }
         List<Trajet> trajets = trajetService.findByStatus(status);
         return Response.ok(trajets).build();
     }
 
     /**
-     * Get trajet by reservation ID
+     * Get trajet by reservation ID, archived ones included
      */
     @GET
     @Path("/reservation/{reservationId}")
@@ -81,19 +161,84 @@ public class TrajetResource {
     }
 
     /**
-     * Update a trajet
+     * Create trajets in bulk from NDJSON (one trajet per line).
+     * The whole batch is persisted in one write; the created trajets are
+     * streamed back as NDJSON.
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes(Ndjson.MEDIA_TYPE)
+    @Produces(Ndjson.MEDIA_TYPE)
+    public Response createTrajets(InputStream body) {
+        List<Trajet> trajets;
+        try {
+            trajets = Ndjson.readAll(body, Trajet.class);
+        } catch (IllegalArgumentException | IOException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity("{\"error\":\"" + e.getMessage() + "\"}").build();
+        }
+        List<Trajet> created = trajetService.createDirectTrajets(trajets);
+        return Response.status(Response.Status.CREATED).entity(Ndjson.write(created.stream())).build();
+    }
+
+    /**
+     * Update a trajet; with an If-Match header (the ETag returned by GET) the
+     * update only succeeds if nobody changed it since, otherwise 412
      */
     @PUT
     @Path("/{id}")
-    public Response updateTrajet(@PathParam("id") Long id, Trajet trajet) {
+    public Response updateTrajet(@PathParam("id") Long id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, Trajet trajet) {
         Trajet existing = trajetService.findById(id);
         if (existing == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
         trajet.setId(id);
-        Trajet updated = trajetService.updateTrajet(trajet);
-        return Response.ok(updated).build();
+        if (!Versions.applyIfMatch(ifMatch, trajet)) {
+            return Versions.preconditionFailed(existing.getVersion() == null ? 0L : existing.getVersion());
+        }
+        try {
+            Trajet updated = trajetService.updateTrajet(trajet);
+            return Versions.ok(updated);
+        } catch (VersionConflictException e) {
+            return Versions.preconditionFailed(e.getCurrentVersion());
+        }
+    }
+
+    /**
+     * Partially update a trajet with a JSON Merge Patch (RFC 7396): only the
+     * fields present are changed, a null removes a value. A "version" field
+     * or an If-Match header makes the update conditional, as for PUT.
+     */
+    @PATCH
+    @Path("/{id}")
+    @Consumes({Versions.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON})
+    public Response patchTrajet(@PathParam("id") Long id,
+            @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, JsonObject patch) {
+        Long expectedVersion;
+        try {
+            expectedVersion = Versions.expectedVersion(ifMatch);
+        } catch (NumberFormatException e) {
+            return Response.status(Response.Status.PRECONDITION_FAILED).build();
+        }
+        if (expectedVersion == null && patch.get("version") instanceof JsonNumber) {
+            expectedVersion = patch.getJsonNumber("version").longValue();
+        }
+
+        try {
+            Trajet patched = trajetService.patchTrajet(id, patch, expectedVersion);
+            if (patched == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Versions.ok(patched);
+        } catch (VersionConflictException e) {
+            return Versions.preconditionFailed(e.getCurrentVersion());
+        } catch (JsonbException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("{\"error\":\"Invalid patch\"}").build();
+        }
     }
 
     /**
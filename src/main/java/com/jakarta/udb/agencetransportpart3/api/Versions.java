@@ -0,0 +1,66 @@
+package com.jakarta.udb.agencetransportpart3.api;
+
+import com.jakarta.udb.agencetransportpart3.entity.Versioned;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * ETag / If-Match handling for versioned entities: the entity tag is the
+ * version number. A PUT with a stale If-Match is answered with 412 and
+ * the current tag, without retrying or locking on the client's behalf.
+ */
+final class Versions {
+
+    static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    private Versions() {
+    }
+
+    static EntityTag tag(Versioned entity) {
+        Long version = entity.getVersion();
+        return new EntityTag(String.valueOf(version == null ? 0L : version));
+    }
+
+    static Response ok(Versioned entity) {
+        return Response.ok(entity).tag(tag(entity)).build();
+    }
+
+    /**
+     * Apply an If-Match header to the entity about to be updated: "*" or no
+     * header leaves the version from the body (an unconditional update when
+     * absent). Returns false when the header is not a version this API issued.
+     */
+    static boolean applyIfMatch(String ifMatch, Versioned entity) {
+        try {
+            Long expected = expectedVersion(ifMatch);
+            if (expected != null) {
+                entity.setVersion(expected);
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Version required by an If-Match header, null for none or "*".
+     * Only the first tag of a list is considered; weak tags are accepted.
+     * Throws NumberFormatException for a tag this API did not issue.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String value = ifMatch.split(",")[0].trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        return Long.parseLong(value.replace("\"", ""));
+    }
+
+    static Response preconditionFailed(long currentVersion) {
+        return Response.status(Response.Status.PRECONDITION_FAILED)
+                .tag(new EntityTag(String.valueOf(currentVersion)))
+                .build();
+    }
+}
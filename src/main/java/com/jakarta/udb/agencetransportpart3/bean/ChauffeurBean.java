@@ -2,12 +2,16 @@ package com.jakarta.udb.agencetransportpart3.bean;
 
 import com.jakarta.udb.agencetransportpart3.config.ServiceConfig;
 import com.jakarta.udb.agencetransportpart3.entity.LocalChauffeur;
+import com.jakarta.udb.agencetransportpart3.entity.Trajet;
+import com.jakarta.udb.agencetransportpart3.integration.ChauffeurServiceClient;
+import com.jakarta.udb.agencetransportpart3.integration.RestClientFactory;
+import com.jakarta.udb.agencetransportpart3.service.TrajetService;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -27,24 +31,35 @@ public class ChauffeurBean {
     @Inject
     private ServiceConfig serviceConfig;
     
+    @Inject
+    private ChauffeurServiceClient chauffeurServiceClient;
+    
+    @Inject
+    private RestClientFactory restClientFactory;
+    
+    @Inject
+    private TrajetService trajetService;
+    
     private Client client;
     private Jsonb jsonb;
     
     public ChauffeurBean() {
-        this.client = ClientBuilder.newClient();
         this.jsonb = JsonbBuilder.create();
     }
     
+    @PostConstruct
+    public void init() {
+        this.client = restClientFactory.getChauffeurClient();
+    }
+    
     /**
      * Récupère la liste de tous les chauffeurs
      */
     public List<LocalChauffeur> getAllChauffeurs() {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl();
-            Response response = client.target(url)
-                    .request(MediaType.APPLICATION_JSON)
-                    .get();
-            
+        String url = serviceConfig.getChauffeurServiceUrl();
+        try (Response response = client.target(url)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
             if (response.getStatus() == Response.Status.OK.getStatusCode()) {
                 String jsonResponse = response.readEntity(String.class);
                 List<LocalChauffeur> chauffeurs = jsonb.fromJson(jsonResponse, 
@@ -65,12 +80,10 @@ public class ChauffeurBean {
      * Récupère un chauffeur par ID
      */
     public LocalChauffeur getChauffeurById(Long id) {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl() + "/" + id;
-            Response response = client.target(url)
-                    .request(MediaType.APPLICATION_JSON)
-                    .get();
-            
+        String url = serviceConfig.getChauffeurServiceUrl() + "/" + id;
+        try (Response response = client.target(url)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
             if (response.getStatus() == Response.Status.OK.getStatusCode()) {
                 LocalChauffeur chauffeur = response.readEntity(LocalChauffeur.class);
                 LOGGER.info("Retrieved chauffeur with ID: " + id);
@@ -92,12 +105,10 @@ public class ChauffeurBean {
      * Crée un nouveau chauffeur
      */
     public LocalChauffeur createChauffeur(LocalChauffeur chauffeur) {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl();
-            Response response = client.target(url)
-                    .request(MediaType.APPLICATION_JSON)
-                    .post(Entity.json(chauffeur));
-            
+        String url = serviceConfig.getChauffeurServiceUrl();
+        try (Response response = client.target(url)
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.json(chauffeur))) {
             if (response.getStatus() == Response.Status.CREATED.getStatusCode() ||
                 response.getStatus() == Response.Status.OK.getStatusCode()) {
                 LocalChauffeur created = response.readEntity(LocalChauffeur.class);
@@ -117,14 +128,13 @@ public class ChauffeurBean {
      * Modifie un chauffeur existant
      */
     public LocalChauffeur updateChauffeur(Long id, LocalChauffeur chauffeur) {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl() + "/" + id;
-            Response response = client.target(url)
-                    .request(MediaType.APPLICATION_JSON)
-                    .put(Entity.json(chauffeur));
-            
+        String url = serviceConfig.getChauffeurServiceUrl() + "/" + id;
+        try (Response response = client.target(url)
+                .request(MediaType.APPLICATION_JSON)
+                .put(Entity.json(chauffeur))) {
             if (response.getStatus() == Response.Status.OK.getStatusCode()) {
                 LocalChauffeur updated = response.readEntity(LocalChauffeur.class);
+                chauffeurServiceClient.invalidateChauffeurDetails(id);
                 LOGGER.info("Updated chauffeur with ID: " + id);
                 return updated;
             } else {
@@ -141,14 +151,14 @@ public class ChauffeurBean {
      * Supprime un chauffeur
      */
     public boolean deleteChauffeur(Long id) {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl() + "/" + id;
-            Response response = client.target(url)
-                    .request()
-                    .delete();
-            
+        String url = serviceConfig.getChauffeurServiceUrl() + "/" + id;
+        try (Response response = client.target(url)
+                .request()
+                .delete()) {
             if (response.getStatus() == Response.Status.NO_CONTENT.getStatusCode() ||
                 response.getStatus() == Response.Status.OK.getStatusCode()) {
+                chauffeurServiceClient.invalidateChauffeurDetails(id);
+                chauffeurServiceClient.invalidateChauffeurAvailability(id);
                 LOGGER.info("Deleted chauffeur with ID: " + id);
                 return true;
             } else {
@@ -165,12 +175,10 @@ public class ChauffeurBean {
      * Récupère les chauffeurs disponibles
      */
     public List<LocalChauffeur> getAvailableChauffeurs() {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl() + "/disponibles";
-            Response response = client.target(url)
-                    .request(MediaType.APPLICATION_JSON)
-                    .get();
-            
+        String url = serviceConfig.getChauffeurServiceUrl() + "/disponibles";
+        try (Response response = client.target(url)
+                .request(MediaType.APPLICATION_JSON)
+                .get()) {
             if (response.getStatus() == Response.Status.OK.getStatusCode()) {
                 String jsonResponse = response.readEntity(String.class);
                 List<LocalChauffeur> chauffeurs = jsonb.fromJson(jsonResponse, 
@@ -191,16 +199,14 @@ public class ChauffeurBean {
      * Assigne un chauffeur à un trajet
      */
     public boolean assignChauffeurToTrajet(Long chauffeurId, Long trajetId) {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl() + "/assigner";
-            String jsonPayload = "{\"chauffeurId\":" + chauffeurId + ",\"trajetId\":" + trajetId + "}";
-            
-            Response response = client.target(url)
-                    .request(MediaType.APPLICATION_JSON)
-                    .post(Entity.json(jsonPayload));
-            
+        String url = serviceConfig.getChauffeurServiceUrl() + "/assigner";
+        String jsonPayload = "{\"chauffeurId\":" + chauffeurId + ",\"trajetId\":" + trajetId + "}";
+        try (Response response = client.target(url)
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.json(jsonPayload))) {
             if (response.getStatus() == Response.Status.OK.getStatusCode() ||
                 response.getStatus() == Response.Status.NO_CONTENT.getStatusCode()) {
+                invalidateAvailability(chauffeurId, trajetId);
                 LOGGER.info("Assigned chauffeur " + chauffeurId + " to trajet " + trajetId);
                 return true;
             } else {
@@ -213,18 +219,31 @@ public class ChauffeurBean {
         }
     }
     
+    /**
+     * La disponibilité en cache du chauffeur n'est plus valable le jour du
+     * trajet ; si le trajet n'est pas connu ici, tous ses jours sont oubliés
+     */
+    private void invalidateAvailability(Long chauffeurId, Long trajetId) {
+        Trajet trajet = trajetService.findById(trajetId);
+        if (trajet != null && trajet.getDepartureDate() != null) {
+            chauffeurServiceClient.invalidateChauffeurAvailability(chauffeurId,
+                    trajet.getDepartureDate().toString());
+        } else {
+            chauffeurServiceClient.invalidateChauffeurAvailability(chauffeurId);
+        }
+    }
+    
     /**
      * Libère un chauffeur d'un trajet
      */
     public boolean releaseChauffeur(Long chauffeurId) {
-        try {
-            String url = serviceConfig.getChauffeurServiceUrl() + "/" + chauffeurId + "/liberer";
-            Response response = client.target(url)
-                    .request()
-                    .post(null);
-            
+        String url = serviceConfig.getChauffeurServiceUrl() + "/" + chauffeurId + "/liberer";
+        try (Response response = client.target(url)
+                .request()
+                .post(null)) {
             if (response.getStatus() == Response.Status.OK.getStatusCode() ||
                 response.getStatus() == Response.Status.NO_CONTENT.getStatusCode()) {
+                chauffeurServiceClient.invalidateChauffeurAvailability(chauffeurId);
                 LOGGER.info("Released chauffeur with ID: " + chauffeurId);
                 return true;
             } else {
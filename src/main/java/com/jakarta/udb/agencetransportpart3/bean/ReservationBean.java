@@ -4,8 +4,11 @@ import com.jakarta.udb.agencetransportpart3.entity.Reservation;
 import com.jakarta.udb.agencetransportpart3.entity.Trajet;
 import com.jakarta.udb.agencetransportpart3.integration.BusServiceClient;
 import com.jakarta.udb.agencetransportpart3.integration.ChauffeurServiceClient;
+import com.jakarta.udb.agencetransportpart3.service.ChangeEvent;
+import com.jakarta.udb.agencetransportpart3.service.ChangeFeed;
 import com.jakarta.udb.agencetransportpart3.service.ReservationService;
 import com.jakarta.udb.agencetransportpart3.service.TrajetService;
+import com.jakarta.udb.agencetransportpart3.service.VersionConflictException;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.faces.application.FacesMessage;
@@ -14,6 +17,7 @@ import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -37,7 +41,14 @@ public class ReservationBean implements Serializable {
     @Inject
     private ChauffeurServiceClient chauffeurServiceClient;
 
+    @Inject
+    private ChangeFeed changeFeed;
+
     private List<Reservation> reservations;
+    // Last change feed event reflected in the lists
+    private long syncedSequence;
+    // Set by the "refresh" view parameter (Actualiser link)
+    private boolean refresh;
     private Reservation selectedReservation;
     private Reservation newReservation;
     private List<Trajet> plannedTrajets;
@@ -62,13 +73,11 @@ public class ReservationBean implements Serializable {
 
     @PostConstruct
     public void init() {
-        loadReservations();
-        loadPlannedTrajets();
         newReservation = new Reservation();
     }
 
     public void loadPlannedTrajets() {
-        plannedTrajets = trajetService.findByStatus("PLANNED");
+        plannedTrajets = new ArrayList<>(trajetService.findByStatus("PLANNED"));
     }
 
     /**
@@ -93,7 +102,71 @@ public class ReservationBean implements Serializable {
      * Load all reservations
      */
     public void loadReservations() {
-        reservations = reservationService.findAll();
+        reservations = new ArrayList<>(reservationService.findAll());
+    }
+
+    /**
+     * Called by reservations.xhtml on every GET: only the reservations and
+     * planned trajets changed since the last sync (the change feed, actions
+     * of this session included) are patched. Both lists are loaded on the
+     * first visit, on an explicit refresh, or when the feed no longer holds
+     * every missed event.
+     */
+    public void syncReservations() {
+        if (reservations == null || plannedTrajets == null || refresh
+                || !changeFeed.isAvailable(syncedSequence)) {
+            refresh = false;
+            // Taken first: a change made during the load is applied again on the next sync
+            syncedSequence = changeFeed.getLastSequence();
+            loadReservations();
+            loadPlannedTrajets();
+            return;
+        }
+        List<ChangeEvent> events = changeFeed.since(syncedSequence, Integer.MAX_VALUE);
+        events.stream()
+                .filter(event -> "Reservation".equals(event.getEntityType()))
+                .map(ChangeEvent::getEntityId)
+                .distinct()
+                .forEach(this::refreshReservation);
+        events.stream()
+                .filter(event -> "Trajet".equals(event.getEntityType()))
+                .map(ChangeEvent::getEntityId)
+                .distinct()
+                .forEach(this::refreshPlannedTrajet);
+        if (!events.isEmpty()) {
+            syncedSequence = events.get(events.size() - 1).getSequence();
+        }
+    }
+
+    /**
+     * Patch one row of the loaded list instead of reloading every reservation
+     */
+    private void refreshReservation(Long id) {
+        reservations.removeIf(r -> id.equals(r.getId()));
+        Reservation current = reservationService.findById(id);
+        if (current != null) {
+            // The list is in id order, like findAll
+            int position = 0;
+            while (position < reservations.size() && reservations.get(position).getId() < id) {
+                position++;
+            }
+            reservations.add(position, current);
+        }
+    }
+
+    /**
+     * Same for the trajets offered in the creation form, which are the planned ones
+     */
+    private void refreshPlannedTrajet(Long id) {
+        plannedTrajets.removeIf(t -> id.equals(t.getId()));
+        Trajet current = trajetService.findById(id);
+        if (current != null && "PLANNED".equalsIgnoreCase(current.getStatus())) {
+            int position = 0;
+            while (position < plannedTrajets.size() && plannedTrajets.get(position).getId() < id) {
+                position++;
+            }
+            plannedTrajets.add(position, current);
+        }
     }
 
     /**
@@ -115,17 +188,11 @@ public class ReservationBean implements Serializable {
 
             // If an existing trajet was selected, link this reservation to it
             if (selectedTrajetId != null) {
-                Trajet t = trajetService.findById(selectedTrajetId);
-                if (t != null) {
-                    t.setReservationId(reservation.getId());
-                    trajetService.updateTrajet(t);
-                }
+                trajetService.linkReservation(selectedTrajetId, reservation.getId());
             }
 
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Reservation created successfully!");
             clearForm();
-            loadReservations();
-            loadPlannedTrajets();
 
             return "reservations?faces-redirect=true";
         } catch (Exception e) {
@@ -148,9 +215,12 @@ public class ReservationBean implements Serializable {
         try {
             reservationService.updateReservation(selectedReservation);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Reservation updated successfully!");
-            loadReservations();
             selectedReservation = null;
             return "reservations?faces-redirect=true";
+        } catch (VersionConflictException e) {
+            addMessage(FacesMessage.SEVERITY_WARN, "Warning",
+                    "This reservation was modified by someone else in the meantime. Please reload it and try again.");
+            return null;
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to update reservation: " + e.getMessage());
             return null;
@@ -272,7 +342,6 @@ public class ReservationBean implements Serializable {
                         "Unable to confirm reservation - resources not available");
             }
 
-            loadReservations();
             selectedReservation = null;
             return "reservations?faces-redirect=true";
         } catch (Exception e) {
@@ -288,7 +357,6 @@ public class ReservationBean implements Serializable {
         try {
             reservationService.cancelReservation(id);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Reservation cancelled!");
-            loadReservations();
             return "reservations?faces-redirect=true";
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to cancel reservation: " + e.getMessage());
@@ -303,7 +371,6 @@ public class ReservationBean implements Serializable {
         try {
             reservationService.deleteReservation(id);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Reservation deleted!");
-            loadReservations();
             return "reservations?faces-redirect=true";
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to delete reservation: " + e.getMessage());
@@ -453,6 +520,14 @@ public class ReservationBean implements Serializable {
         this.plannedTrajets = plannedTrajets;
     }
 
+    public boolean isRefresh() {
+        return refresh;
+    }
+
+    public void setRefresh(boolean refresh) {
+        this.refresh = refresh;
+    }
+
     public Long getSelectedTrajetId() {
         return selectedTrajetId;
     }
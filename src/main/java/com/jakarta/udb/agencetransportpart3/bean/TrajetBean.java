@@ -1,15 +1,19 @@
 package com.jakarta.udb.agencetransportpart3.bean;
 
 import com.jakarta.udb.agencetransportpart3.entity.Trajet;
+import com.jakarta.udb.agencetransportpart3.service.ChangeEvent;
+import com.jakarta.udb.agencetransportpart3.service.ChangeFeed;
 import com.jakarta.udb.agencetransportpart3.service.TrajetService;
-import jakarta.annotation.PostConstruct;
+import com.jakarta.udb.agencetransportpart3.service.VersionConflictException;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * JSF Backing Bean for Trajet management
@@ -23,7 +27,14 @@ public class TrajetBean implements Serializable {
     @Inject
     private TrajetService trajetService;
 
+    @Inject
+    private ChangeFeed changeFeed;
+
     private List<Trajet> trajets;
+    // Last change feed event reflected in the list
+    private long syncedSequence;
+    // Set by the "refresh" view parameter (Actualiser link)
+    private boolean refresh;
     private Trajet selectedTrajet;
 
     // Filters
@@ -37,17 +48,54 @@ public class TrajetBean implements Serializable {
     // For manual creation
     private Trajet newTrajet = new Trajet();
 
-    @PostConstruct
-    public void init() {
-        loadTrajets();
-    }
-
     /**
      * Load all trajets with basic filtering
      */
     public void loadTrajets() {
-        trajets = trajetService.findAll();
-        applyFilters();
+        // Taken first: a change made during the load is applied again on the next sync
+        syncedSequence = changeFeed.getLastSequence();
+        trajets = trajetService.findAll().stream()
+                .filter(this::matchesFilters)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Called by trajets.xhtml on every GET: only the rows changed since the
+     * last sync (the change feed, actions of this session included) are
+     * patched. The whole list is loaded on the first visit, on an explicit
+     * refresh, or when the feed no longer holds every missed event.
+     */
+    public void syncTrajets() {
+        if (trajets == null || refresh || !changeFeed.isAvailable(syncedSequence)) {
+            refresh = false;
+            loadTrajets();
+            return;
+        }
+        List<ChangeEvent> events = changeFeed.since(syncedSequence, Integer.MAX_VALUE);
+        events.stream()
+                .filter(event -> "Trajet".equals(event.getEntityType()))
+                .map(ChangeEvent::getEntityId)
+                .distinct()
+                .forEach(this::refreshTrajet);
+        if (!events.isEmpty()) {
+            syncedSequence = events.get(events.size() - 1).getSequence();
+        }
+    }
+
+    /**
+     * Patch one row of the loaded list instead of reloading every trajet
+     */
+    private void refreshTrajet(Long id) {
+        trajets.removeIf(t -> id.equals(t.getId()));
+        Trajet current = trajetService.findById(id);
+        if (current != null && matchesFilters(current)) {
+            // The list is in id order, like findAll
+            int position = 0;
+            while (position < trajets.size() && trajets.get(position).getId() < id) {
+                position++;
+            }
+            trajets.add(position, current);
+        }
     }
 
     /**
@@ -57,7 +105,6 @@ public class TrajetBean implements Serializable {
         try {
             trajetService.createDirectTrajet(newTrajet);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Trajet créé avec succès !");
-            loadTrajets();
             newTrajet = new Trajet();
             return "trajets?faces-redirect=true";
         } catch (Exception e) {
@@ -66,17 +113,13 @@ public class TrajetBean implements Serializable {
         }
     }
 
-    private void applyFilters() {
-        if (destinationSearch != null && !destinationSearch.isEmpty()) {
-            trajets = trajets.stream()
-                    .filter(t -> t.getDestinationLocation().toLowerCase().contains(destinationSearch.toLowerCase()))
-                    .collect(java.util.stream.Collectors.toList());
-        }
-        if (statusFilter != null && !statusFilter.isEmpty() && !"ALL".equals(statusFilter)) {
-            trajets = trajets.stream()
-                    .filter(t -> t.getStatus().equals(statusFilter))
-                    .collect(java.util.stream.Collectors.toList());
+    private boolean matchesFilters(Trajet trajet) {
+        if (destinationSearch != null && !destinationSearch.isEmpty()
+                && !trajet.getDestinationLocation().toLowerCase().contains(destinationSearch.toLowerCase())) {
+            return false;
         }
+        return statusFilter == null || statusFilter.isEmpty() || "ALL".equals(statusFilter)
+                || statusFilter.equals(trajet.getStatus());
     }
 
     /**
@@ -87,7 +130,7 @@ public class TrajetBean implements Serializable {
     }
 
     public long getInProgressCount() {
-        return trajetService.findAll().stream().filter(t -> "IN_PROGRESS".equals(t.getStatus())).count();
+        return trajetService.getInProgressTrajetsCount();
     }
 
     public long getCompletedCount() {
@@ -95,7 +138,7 @@ public class TrajetBean implements Serializable {
     }
 
     public long getTotalCount() {
-        return trajetService.findAll().size();
+        return trajetService.getTotalTrajetsCount();
     }
 
     /**
@@ -112,9 +155,12 @@ public class TrajetBean implements Serializable {
         try {
             trajetService.updateTrajet(selectedTrajet);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Trip updated successfully!");
-            loadTrajets();
             selectedTrajet = null;
             return "trajets?faces-redirect=true";
+        } catch (VersionConflictException e) {
+            addMessage(FacesMessage.SEVERITY_WARN, "Warning",
+                    "This trip was modified by someone else in the meantime. Please reload it and try again.");
+            return null;
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to update trip: " + e.getMessage());
             return null;
@@ -133,7 +179,6 @@ public class TrajetBean implements Serializable {
 
             trajetService.assignBus(trajetId, busIdForAssignment);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Bus assigned successfully!");
-            loadTrajets();
             busIdForAssignment = null;
             return "trajets?faces-redirect=true";
         } catch (Exception e) {
@@ -154,7 +199,6 @@ public class TrajetBean implements Serializable {
 
             trajetService.assignChauffeur(trajetId, chauffeurIdForAssignment);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Driver assigned successfully!");
-            loadTrajets();
             chauffeurIdForAssignment = null;
             return "trajets?faces-redirect=true";
         } catch (Exception e) {
@@ -170,7 +214,6 @@ public class TrajetBean implements Serializable {
         try {
             trajetService.startTrajet(id);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Trip started!");
-            loadTrajets();
             return "trajets?faces-redirect=true";
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to start trip: " + e.getMessage());
@@ -185,7 +228,6 @@ public class TrajetBean implements Serializable {
         try {
             trajetService.completeTrajet(id);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Trip completed!");
-            loadTrajets();
             return "trajets?faces-redirect=true";
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to complete trip: " + e.getMessage());
@@ -200,7 +242,6 @@ public class TrajetBean implements Serializable {
         try {
             trajetService.cancelTrajet(id);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Trip cancelled!");
-            loadTrajets();
             return "trajets?faces-redirect=true";
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to cancel trip: " + e.getMessage());
@@ -215,7 +256,6 @@ public class TrajetBean implements Serializable {
         try {
             trajetService.deleteTrajet(id);
             addMessage(FacesMessage.SEVERITY_INFO, "Success", "Trip deleted!");
-            loadTrajets();
             return "trajets?faces-redirect=true";
         } catch (Exception e) {
             addMessage(FacesMessage.SEVERITY_ERROR, "Error", "Failed to delete trip: " + e.getMessage());
@@ -279,6 +319,14 @@ public class TrajetBean implements Serializable {
         this.destinationSearch = destinationSearch;
     }
 
+    public boolean isRefresh() {
+        return refresh;
+    }
+
+    public void setRefresh(boolean refresh) {
+        this.refresh = refresh;
+    }
+
     public String getStatusFilter() {
         return statusFilter;
     }
@@ -48,6 +48,18 @@ public class ServiceConfig {
         properties.setProperty("bus.service.url", "http://localhost:8080/servicegestionbus/api/bus");
         properties.setProperty("chauffeur.service.timeout", "5000");
         properties.setProperty("bus.service.timeout", "5000");
+        properties.setProperty("chauffeur.service.connect.timeout", "2000");
+        properties.setProperty("bus.service.connect.timeout", "2000");
+        properties.setProperty("persistence.engine", "json");
+        properties.setProperty("persistence.mode", "snapshot");
+        properties.setProperty("persistence.journal.compact.threshold", "1000");
+        properties.setProperty("persistence.group-commit.window.ms", "0");
+        properties.setProperty("archive.age.days", "90");
+        properties.setProperty("archive.interval.hours", "24");
+        properties.setProperty("changes.buffer.size", "10000");
+        properties.setProperty("integration.cache.size", "500");
+        properties.setProperty("integration.cache.ttl.seconds", "300");
+        properties.setProperty("integration.availability.ttl.seconds", "30");
     }
     
     /**
@@ -65,19 +77,106 @@ public class ServiceConfig {
     }
     
     /**
-     * Obtient le timeout du service de chauffeurs (en ms)
+     * Obtient le timeout de lecture du service de chauffeurs (en ms)
      */
     public int getChauffeurServiceTimeout() {
         return Integer.parseInt(properties.getProperty("chauffeur.service.timeout", "5000"));
     }
     
     /**
-     * Obtient le timeout du service de bus (en ms)
+     * Obtient le timeout de lecture du service de bus (en ms)
      */
     public int getBusServiceTimeout() {
         return Integer.parseInt(properties.getProperty("bus.service.timeout", "5000"));
     }
     
+    /**
+     * Obtient le timeout de connexion au service de chauffeurs (en ms)
+     */
+    public int getChauffeurServiceConnectTimeout() {
+        return Integer.parseInt(properties.getProperty("chauffeur.service.connect.timeout", "2000"));
+    }
+    
+    /**
+     * Obtient le timeout de connexion au service de bus (en ms)
+     */
+    public int getBusServiceConnectTimeout() {
+        return Integer.parseInt(properties.getProperty("bus.service.connect.timeout", "2000"));
+    }
+    
+    /**
+     * Moteur de stockage : "json", "binary" (fichiers binaires mappés en
+     * mémoire) ou "jpa" (base de données via la datasource de l'application).
+     * "binary" et "jpa" ne concernent que les trajets et réservations.
+     */
+    public String getPersistenceEngine() {
+        return properties.getProperty("persistence.engine", "json");
+    }
+    
+    /**
+     * Mode de persistance JSON : "snapshot" (réécriture complète) ou "journal"
+     */
+    public String getPersistenceMode() {
+        return properties.getProperty("persistence.mode", "snapshot");
+    }
+    
+    /**
+     * Nombre d'entrées de journal avant compaction dans le snapshot
+     */
+    public int getJournalCompactionThreshold() {
+        return Integer.parseInt(properties.getProperty("persistence.journal.compact.threshold", "1000"));
+    }
+    
+    /**
+     * Fenêtre de regroupement des écritures (en ms) ; 0 = écriture immédiate
+     */
+    public long getGroupCommitWindowMillis() {
+        return Long.parseLong(properties.getProperty("persistence.group-commit.window.ms", "0"));
+    }
+    
+    /**
+     * Âge (en jours, depuis le départ) à partir duquel un trajet ou une
+     * réservation terminé(e) est archivé(e)
+     */
+    public int getArchiveAgeDays() {
+        return Integer.parseInt(properties.getProperty("archive.age.days", "90"));
+    }
+    
+    /**
+     * Intervalle (en heures) entre deux archivages ; 0 = désactivé
+     */
+    public long getArchiveIntervalHours() {
+        return Long.parseLong(properties.getProperty("archive.interval.hours", "24"));
+    }
+    
+    /**
+     * Nombre d'événements de modification conservés pour GET /changes
+     */
+    public int getChangeFeedCapacity() {
+        return Integer.parseInt(properties.getProperty("changes.buffer.size", "10000"));
+    }
+    
+    /**
+     * Nombre maximal de bus / chauffeurs gardés en cache par client REST
+     */
+    public int getIntegrationCacheSize() {
+        return Integer.parseInt(properties.getProperty("integration.cache.size", "500"));
+    }
+    
+    /**
+     * Durée de vie (en secondes) des détails bus / chauffeur en cache ; 0 = pas de cache
+     */
+    public long getIntegrationCacheTtlSeconds() {
+        return Long.parseLong(properties.getProperty("integration.cache.ttl.seconds", "300"));
+    }
+    
+    /**
+     * Durée de vie (en secondes) des disponibilités en cache, réponses négatives comprises
+     */
+    public long getAvailabilityCacheTtlSeconds() {
+        return Long.parseLong(properties.getProperty("integration.availability.ttl.seconds", "30"));
+    }
+    
     /**
      * Modification dynamique de l'URL du service de chauffeurs
      */
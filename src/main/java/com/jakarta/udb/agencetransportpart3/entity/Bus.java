@@ -21,6 +21,10 @@ public class Bus {
         this.etat = etat;
     }
 
+    public Bus(Bus other) {
+        this(other.id, other.number, other.modele, other.capacity, other.etat);
+    }
+
     public Long getId() {
         return id;
     }
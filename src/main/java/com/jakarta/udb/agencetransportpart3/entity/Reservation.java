@@ -8,18 +8,22 @@ import java.time.LocalDateTime;
  * Entity representing a Reservation
  */
 @Entity
-@Table(name = "RESERVATION")
+@Table(name = "RESERVATION", indexes = {
+        @Index(name = "IDX_RESERVATION_STATUS", columnList = "STATUS"),
+        @Index(name = "IDX_RESERVATION_TRAJET", columnList = "TRAJET_ID"),
+        @Index(name = "IDX_RESERVATION_DEPARTURE", columnList = "DEPARTURE_DATE")
+})
 @NamedQueries({
         @NamedQuery(name = "Reservation.findAll", query = "SELECT r FROM Reservation r"),
         @NamedQuery(name = "Reservation.findById", query = "SELECT r FROM Reservation r WHERE r.id = :id"),
         @NamedQuery(name = "Reservation.findByStatus", query = "SELECT r FROM Reservation r WHERE r.status = :status")
 })
-public class Reservation implements Serializable {
+public class Reservation implements Serializable, Versioned {
 
     private static final long serialVersionUID = 1L;
 
+    // Assigned by the application (JsonPersistenceService.nextId), not the database
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(name = "PASSENGER_NAME", nullable = false, length = 100)
@@ -55,6 +59,10 @@ public class Reservation implements Serializable {
     @Column(name = "UPDATED_AT")
     private LocalDateTime updatedAt;
 
+    // Managed by JsonPersistenceService, not by JPA's @Version
+    @Column(name = "VERSION")
+    private Long version;
+
     // Constructors
     public Reservation() {
         this.status = "PENDING";
@@ -72,6 +80,25 @@ public class Reservation implements Serializable {
         this.numberOfSeats = numberOfSeats;
     }
 
+    /**
+     * Copy constructor
+     */
+    public Reservation(Reservation other) {
+        this.id = other.id;
+        this.passengerName = other.passengerName;
+        this.passengerEmail = other.passengerEmail;
+        this.passengerPhone = other.passengerPhone;
+        this.departureLocation = other.departureLocation;
+        this.destinationLocation = other.destinationLocation;
+        this.departureDate = other.departureDate;
+        this.numberOfSeats = other.numberOfSeats;
+        this.status = other.status;
+        this.trajetId = other.trajetId;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.version = other.version;
+    }
+
     // Lifecycle callbacks
     @PreUpdate
     public void preUpdate() {
@@ -175,6 +202,16 @@ public class Reservation implements Serializable {
         this.updatedAt = updatedAt;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         int hash = 0;
@@ -8,19 +8,27 @@ import java.time.LocalDateTime;
  * Entity representing a Trajet (Trip)
  */
 @Entity
-@Table(name = "TRAJET")
+@Table(name = "TRAJET", indexes = {
+        @Index(name = "IDX_TRAJET_STATUS", columnList = "STATUS"),
+        @Index(name = "IDX_TRAJET_RESERVATION", columnList = "RESERVATION_ID"),
+        @Index(name = "IDX_TRAJET_BUS", columnList = "BUS_ID"),
+        @Index(name = "IDX_TRAJET_CHAUFFEUR", columnList = "CHAUFFEUR_ID"),
+        @Index(name = "IDX_TRAJET_DEPARTURE", columnList = "DEPARTURE_DATE")
+})
 @NamedQueries({
         @NamedQuery(name = "Trajet.findAll", query = "SELECT t FROM Trajet t"),
         @NamedQuery(name = "Trajet.findById", query = "SELECT t FROM Trajet t WHERE t.id = :id"),
         @NamedQuery(name = "Trajet.findByStatus", query = "SELECT t FROM Trajet t WHERE t.status = :status"),
-        @NamedQuery(name = "Trajet.findByReservationId", query = "SELECT t FROM Trajet t WHERE t.reservationId = :reservationId")
+        @NamedQuery(name = "Trajet.findByReservationId", query = "SELECT t FROM Trajet t WHERE t.reservationId = :reservationId"),
+        @NamedQuery(name = "Trajet.findByBusId", query = "SELECT t FROM Trajet t WHERE t.busId = :busId"),
+        @NamedQuery(name = "Trajet.findByChauffeurId", query = "SELECT t FROM Trajet t WHERE t.chauffeurId = :chauffeurId")
 })
-public class Trajet implements Serializable {
+public class Trajet implements Serializable, Versioned {
 
     private static final long serialVersionUID = 1L;
 
+    // Assigned by the application (JsonPersistenceService.nextId), not the database
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(name = "RESERVATION_ID", nullable = true)
@@ -71,6 +79,10 @@ public class Trajet implements Serializable {
     @Column(name = "UPDATED_AT")
     private LocalDateTime updatedAt;
 
+    // Managed by JsonPersistenceService, not by JPA's @Version
+    @Column(name = "VERSION")
+    private Long version;
+
     // Constructors
     public Trajet() {
         this.status = "PLANNED";
@@ -87,6 +99,30 @@ public class Trajet implements Serializable {
         this.departureDate = departureDate;
     }
 
+    /**
+     * Copy constructor
+     */
+    public Trajet(Trajet other) {
+        this.id = other.id;
+        this.reservationId = other.reservationId;
+        this.busId = other.busId;
+        this.busNumber = other.busNumber;
+        this.chauffeurId = other.chauffeurId;
+        this.chauffeurName = other.chauffeurName;
+        this.departureLocation = other.departureLocation;
+        this.destinationLocation = other.destinationLocation;
+        this.departureDate = other.departureDate;
+        this.arrivalDate = other.arrivalDate;
+        this.status = other.status;
+        this.distanceKm = other.distanceKm;
+        this.actualDepartureDate = other.actualDepartureDate;
+        this.actualArrivalDate = other.actualArrivalDate;
+        this.notes = other.notes;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.version = other.version;
+    }
+
     // Lifecycle callbacks
     @PreUpdate
     public void preUpdate() {
@@ -230,6 +266,16 @@ public class Trajet implements Serializable {
         this.updatedAt = updatedAt;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         int hash = 0;
@@ -0,0 +1,13 @@
+package com.jakarta.udb.agencetransportpart3.entity;
+
+/**
+ * Entity carrying an optimistic concurrency version, incremented by the
+ * persistence layer on every update. A null version means "not known" and
+ * disables the check for that update.
+ */
+public interface Versioned {
+
+    Long getVersion();
+
+    void setVersion(Long version);
+}
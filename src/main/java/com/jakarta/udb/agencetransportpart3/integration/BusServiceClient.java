@@ -3,20 +3,25 @@ package com.jakarta.udb.agencetransportpart3.integration;
 import com.jakarta.udb.agencetransportpart3.entity.LocalBus;
 import com.jakarta.udb.agencetransportpart3.service.LocalResourceService;
 import com.jakarta.udb.agencetransportpart3.config.ServiceConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 /**
@@ -28,20 +33,41 @@ public class BusServiceClient {
     private static final Logger LOGGER = Logger.getLogger(BusServiceClient.class.getName());
     // Use ServiceConfig to read target URL so it can point to the local API
 
-    private final Client client;
+    private Client client;
     private final Jsonb jsonb;
 
+    private RemoteDetails details;
+    private ExpiringCache<String, Boolean> availabilityCache;
+
     @Inject
     private LocalResourceService localResourceService;
 
     @Inject
     private ServiceConfig serviceConfig;
 
+    @Inject
+    private RestClientFactory restClientFactory;
+
     public BusServiceClient() {
-        this.client = ClientBuilder.newClient();
         this.jsonb = JsonbBuilder.create();
     }
 
+    @PostConstruct
+    public void init() {
+        client = restClientFactory.getBusClient();
+        details = new RemoteDetails("Bus", client, serviceConfig::getBusServiceUrl, this::localBusDetails,
+                new ExpiringCache<>("Bus details", serviceConfig.getIntegrationCacheSize(),
+                        Duration.ofSeconds(serviceConfig.getIntegrationCacheTtlSeconds())));
+        availabilityCache = new ExpiringCache<>("Bus availability", serviceConfig.getIntegrationCacheSize(),
+                Duration.ofSeconds(serviceConfig.getAvailabilityCacheTtlSeconds()));
+    }
+
+    @PreDestroy
+    public void logCacheStats() {
+        LOGGER.info(details.getCache().toString());
+        LOGGER.info(availabilityCache.toString());
+    }
+
     /**
      * Check if a bus is available for a specific date
      */
@@ -55,64 +81,146 @@ public class BusServiceClient {
             return true;
         }
 
-        // Otherwise, check with external service
-        try {
+        // Otherwise, check with external service (answers are cached briefly,
+        // negative ones included)
+        String formattedDate = date.contains("T") ? date.split("T")[0] : date;
+        Boolean available = availabilityCache.get(availabilityKey(busId, formattedDate),
+                key -> fetchBusAvailability(busId, formattedDate));
+        return Boolean.TRUE.equals(available);
+    }
+
+    /**
+     * Drop the cached availability of a bus for the day of {@code date}, after
+     * a trajet using it that day was created, reassigned or cancelled here
+     */
+    public void invalidateBusAvailability(Long busId, String date) {
+        if (busId != null && date != null) {
             String formattedDate = date.contains("T") ? date.split("T")[0] : date;
+            availabilityCache.invalidate(availabilityKey(busId, formattedDate));
+        }
+    }
 
-                WebTarget target = client.target(serviceConfig.getBusServiceUrl())
-                    .path(String.valueOf(busId))
-                    .path("availability")
-                    .queryParam("date", formattedDate);
+    /**
+     * Drop the cached availability of a bus for every day, after a change
+     * whose day is not reliably known here (a trajet moved or deleted)
+     */
+    public void invalidateBusAvailability(Long busId) {
+        if (busId != null) {
+            String prefix = availabilityKey(busId, "");
+            availabilityCache.invalidateIf(key -> key.startsWith(prefix));
+        }
+    }
 
-            Response response = target.request(MediaType.APPLICATION_JSON).get();
+    private static String availabilityKey(Long busId, String formattedDate) {
+        return busId + "@" + formattedDate;
+    }
 
-            if (response.getStatus() == 200) {
-                String jsonResponse = response.readEntity(String.class);
-                // Simple check for boolean field in JSON
-                return jsonResponse.contains("\"available\":true");
-            }
+    /**
+     * Non-blocking variant of {@link #checkBusAvailability}, served from the
+     * same cache; completes with false when the service cannot answer
+     */
+    public CompletionStage<Boolean> checkBusAvailabilityAsync(Long busId, String date) {
+        if (busId == null || date == null)
+            return CompletableFuture.completedFuture(false);
 
-            LOGGER.warning("Bus availability service returned " + response.getStatus() + " for bus " + busId);
-            return false;
+        if (localResourceService.isTestBusAvailable(busId, date)) {
+            LOGGER.info("Test bus " + busId + " is always available");
+            return CompletableFuture.completedFuture(true);
+        }
+
+        String formattedDate = date.contains("T") ? date.split("T")[0] : date;
+        return availabilityCache.getAsync(availabilityKey(busId, formattedDate),
+                key -> fetchBusAvailabilityAsync(busId, formattedDate))
+                .thenApply(Boolean.TRUE::equals);
+    }
 
+    /**
+     * Remote availability answer, or null when the service could not give
+     * one (not cached, and treated as unavailable)
+     */
+    private Boolean fetchBusAvailability(Long busId, String formattedDate) {
+        try (Response response = availabilityTarget(busId, formattedDate)
+                .request(MediaType.APPLICATION_JSON).get()) {
+            return readAvailability(response, busId);
         } catch (Exception e) {
             LOGGER.severe("Error checking bus availability: " + e.getMessage());
-            return false; // Safer fallback: assume not available if service is down
+            return null; // Safer fallback: assume not available if service is down
         }
     }
 
+    private CompletionStage<Boolean> fetchBusAvailabilityAsync(Long busId, String formattedDate) {
+        try {
+            return availabilityTarget(busId, formattedDate)
+                    .request(MediaType.APPLICATION_JSON).rx().get()
+                    .thenApply(response -> {
+                        try (response) {
+                            return readAvailability(response, busId);
+                        }
+                    })
+                    .exceptionally(e -> {
+                        LOGGER.severe("Error checking bus availability: " + e.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            LOGGER.severe("Error checking bus availability: " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private WebTarget availabilityTarget(Long busId, String formattedDate) {
+        return client.target(serviceConfig.getBusServiceUrl())
+                .path(String.valueOf(busId))
+                .path("availability")
+                .queryParam("date", formattedDate);
+    }
+
+    private static Boolean readAvailability(Response response, Long busId) {
+        if (response.getStatus() == 200) {
+            String jsonResponse = response.readEntity(String.class);
+            // Simple check for boolean field in JSON
+            return jsonResponse.contains("\"available\":true");
+        }
+
+        LOGGER.warning("Bus availability service returned " + response.getStatus() + " for bus " + busId);
+        return null;
+    }
+
     /**
      * Get bus details by ID
      */
     public String getBusDetails(Long busId) {
-        if (busId == null)
-            return null;
+        return details.get(busId);
+    }
 
-        // Check if it's a test bus - return local details
-        if (localResourceService.isTestBus(busId)) {
-            LocalBus bus = localResourceService.getBusById(busId);
-            if (bus != null) {
-                LOGGER.info("Returning test bus details for ID: " + busId);
-                return jsonb.toJson(bus);
-            }
-        }
+    /**
+     * Details of several buses, keyed by id; ids that cannot be resolved
+     * are left out. Test buses are served locally and cached ones from the
+     * cache; the rest are asked of Service 1 in batches (see RemoteDetails).
+     */
+    public Map<Long, String> getBusDetails(Collection<Long> busIds) {
+        return details.getAll(busIds);
+    }
 
-        // Otherwise, get from external service
-        try {
-            WebTarget target = client.target(serviceConfig.getBusServiceUrl()).path(String.valueOf(busId));
-            Response response = target.request(MediaType.APPLICATION_JSON).get();
+    /**
+     * Drop the cached details of a bus changed through this application
+     */
+    public void invalidateBusDetails(Long busId) {
+        details.invalidate(busId);
+    }
 
-            if (response.getStatus() == 200) {
-                return response.readEntity(String.class);
-            }
+    /**
+     * Hit/miss statistics of the details cache
+     */
+    public ExpiringCache<Long, String> getDetailsCache() {
+        return details.getCache();
+    }
 
-            LOGGER.warning("Bus details service returned " + response.getStatus() + " for bus " + busId);
+    private String localBusDetails(Long busId) {
+        if (!localResourceService.isTestBus(busId)) {
             return null;
-
-        } catch (Exception e) {
-            LOGGER.severe("Error getting bus details: " + e.getMessage());
-            return null; // Return null so callers can handle "Indisponible"
         }
+        LocalBus bus = localResourceService.getBusById(busId);
+        return bus != null ? jsonb.toJson(bus) : null;
     }
 
     /**
@@ -132,10 +240,8 @@ public class BusServiceClient {
         }
 
         // Try to add external buses
-        try {
-            WebTarget target = client.target(serviceConfig.getBusServiceUrl()).queryParam("available", true);
-            Response response = target.request(MediaType.APPLICATION_JSON).get();
-
+        try (Response response = client.target(serviceConfig.getBusServiceUrl()).queryParam("available", true)
+                .request(MediaType.APPLICATION_JSON).get()) {
             if (response.getStatus() == 200) {
                 String externalJson = response.readEntity(String.class);
                 // Parse external buses and add them
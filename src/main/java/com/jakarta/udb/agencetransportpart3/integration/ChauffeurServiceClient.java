@@ -1,21 +1,27 @@
 package com.jakarta.udb.agencetransportpart3.integration;
 
+import com.jakarta.udb.agencetransportpart3.config.ServiceConfig;
 import com.jakarta.udb.agencetransportpart3.entity.LocalChauffeur;
 import com.jakarta.udb.agencetransportpart3.service.LocalResourceService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
 
 /**
@@ -27,17 +33,41 @@ public class ChauffeurServiceClient {
     private static final Logger LOGGER = Logger.getLogger(ChauffeurServiceClient.class.getName());
     private static final String CHAUFFEUR_SERVICE_URL = "http://localhost:8080/AgenceTransportPART2/api/chauffeurs";
 
-    private final Client client;
+    private Client client;
     private final Jsonb jsonb;
 
+    private RemoteDetails details;
+    private ExpiringCache<String, Boolean> availabilityCache;
+
     @Inject
     private LocalResourceService localResourceService;
 
+    @Inject
+    private ServiceConfig serviceConfig;
+
+    @Inject
+    private RestClientFactory restClientFactory;
+
     public ChauffeurServiceClient() {
-        this.client = ClientBuilder.newClient();
         this.jsonb = JsonbBuilder.create();
     }
 
+    @PostConstruct
+    public void init() {
+        client = restClientFactory.getChauffeurClient();
+        details = new RemoteDetails("Chauffeur", client, () -> CHAUFFEUR_SERVICE_URL, this::localChauffeurDetails,
+                new ExpiringCache<>("Chauffeur details", serviceConfig.getIntegrationCacheSize(),
+                        Duration.ofSeconds(serviceConfig.getIntegrationCacheTtlSeconds())));
+        availabilityCache = new ExpiringCache<>("Chauffeur availability", serviceConfig.getIntegrationCacheSize(),
+                Duration.ofSeconds(serviceConfig.getAvailabilityCacheTtlSeconds()));
+    }
+
+    @PreDestroy
+    public void logCacheStats() {
+        LOGGER.info(details.getCache().toString());
+        LOGGER.info(availabilityCache.toString());
+    }
+
     /**
      * Check if a chauffeur is available for a specific date
      */
@@ -51,65 +81,146 @@ public class ChauffeurServiceClient {
             return true;
         }
 
-        // Otherwise, check with external service
-        try {
+        // Otherwise, check with external service (answers are cached briefly,
+        // negative ones included)
+        String formattedDate = date.contains("T") ? date.split("T")[0] : date;
+        Boolean available = availabilityCache.get(availabilityKey(chauffeurId, formattedDate),
+                key -> fetchChauffeurAvailability(chauffeurId, formattedDate));
+        return Boolean.TRUE.equals(available);
+    }
+
+    /**
+     * Drop the cached availability of a chauffeur for the day of {@code date}, after
+     * a trajet using it that day was created, reassigned or cancelled here
+     */
+    public void invalidateChauffeurAvailability(Long chauffeurId, String date) {
+        if (chauffeurId != null && date != null) {
             String formattedDate = date.contains("T") ? date.split("T")[0] : date;
+            availabilityCache.invalidate(availabilityKey(chauffeurId, formattedDate));
+        }
+    }
+
+    /**
+     * Drop the cached availability of a chauffeur for every day, after a
+     * change whose day is not known here (release, deletion)
+     */
+    public void invalidateChauffeurAvailability(Long chauffeurId) {
+        if (chauffeurId != null) {
+            String prefix = availabilityKey(chauffeurId, "");
+            availabilityCache.invalidateIf(key -> key.startsWith(prefix));
+        }
+    }
 
-            WebTarget target = client.target(CHAUFFEUR_SERVICE_URL)
-                    .path(String.valueOf(chauffeurId))
-                    .path("availability")
-                    .queryParam("date", formattedDate);
+    private static String availabilityKey(Long chauffeurId, String formattedDate) {
+        return chauffeurId + "@" + formattedDate;
+    }
 
-            Response response = target.request(MediaType.APPLICATION_JSON).get();
+    /**
+     * Non-blocking variant of {@link #checkChauffeurAvailability}, served from the
+     * same cache; completes with false when the service cannot answer
+     */
+    public CompletionStage<Boolean> checkChauffeurAvailabilityAsync(Long chauffeurId, String date) {
+        if (chauffeurId == null || date == null)
+            return CompletableFuture.completedFuture(false);
 
-            if (response.getStatus() == 200) {
-                String jsonResponse = response.readEntity(String.class);
-                return jsonResponse.contains("\"available\":true");
-            }
+        if (localResourceService.isTestChauffeurAvailable(chauffeurId, date)) {
+            LOGGER.info("Test chauffeur " + chauffeurId + " is always available");
+            return CompletableFuture.completedFuture(true);
+        }
 
-            LOGGER.warning("Chauffeur availability service returned " + response.getStatus() + " for chauffeur "
-                    + chauffeurId);
-            return false;
+        String formattedDate = date.contains("T") ? date.split("T")[0] : date;
+        return availabilityCache.getAsync(availabilityKey(chauffeurId, formattedDate),
+                key -> fetchChauffeurAvailabilityAsync(chauffeurId, formattedDate))
+                .thenApply(Boolean.TRUE::equals);
+    }
 
+    /**
+     * Remote availability answer, or null when the service could not give
+     * one (not cached, and treated as unavailable)
+     */
+    private Boolean fetchChauffeurAvailability(Long chauffeurId, String formattedDate) {
+        try (Response response = availabilityTarget(chauffeurId, formattedDate)
+                .request(MediaType.APPLICATION_JSON).get()) {
+            return readAvailability(response, chauffeurId);
         } catch (Exception e) {
             LOGGER.severe("Error checking chauffeur availability: " + e.getMessage());
-            return false; // Safer fallback: assume not available if service is down
+            return null; // Safer fallback: assume not available if service is down
         }
     }
 
+    private CompletionStage<Boolean> fetchChauffeurAvailabilityAsync(Long chauffeurId, String formattedDate) {
+        try {
+            return availabilityTarget(chauffeurId, formattedDate)
+                    .request(MediaType.APPLICATION_JSON).rx().get()
+                    .thenApply(response -> {
+                        try (response) {
+                            return readAvailability(response, chauffeurId);
+                        }
+                    })
+                    .exceptionally(e -> {
+                        LOGGER.severe("Error checking chauffeur availability: " + e.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            LOGGER.severe("Error checking chauffeur availability: " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private WebTarget availabilityTarget(Long chauffeurId, String formattedDate) {
+        return client.target(CHAUFFEUR_SERVICE_URL)
+                .path(String.valueOf(chauffeurId))
+                .path("availability")
+                .queryParam("date", formattedDate);
+    }
+
+    private static Boolean readAvailability(Response response, Long chauffeurId) {
+        if (response.getStatus() == 200) {
+            String jsonResponse = response.readEntity(String.class);
+            // Simple check for boolean field in JSON
+            return jsonResponse.contains("\"available\":true");
+        }
+
+        LOGGER.warning("Chauffeur availability service returned " + response.getStatus() + " for chauffeur " + chauffeurId);
+        return null;
+    }
+
     /**
      * Get chauffeur details by ID
      */
     public String getChauffeurDetails(Long chauffeurId) {
-        if (chauffeurId == null)
-            return null;
+        return details.get(chauffeurId);
+    }
 
-        // Check if it's a test chauffeur - return local details
-        if (localResourceService.isTestChauffeur(chauffeurId)) {
-            LocalChauffeur chauffeur = localResourceService.getChauffeurById(chauffeurId);
-            if (chauffeur != null) {
-                LOGGER.info("Returning test chauffeur details for ID: " + chauffeurId);
-                return jsonb.toJson(chauffeur);
-            }
-        }
+    /**
+     * Details of several chauffeurs, keyed by id; ids that cannot be resolved
+     * are left out. Test chauffeurs are served locally and cached ones from the
+     * cache; the rest are asked of Service 2 in batches (see RemoteDetails).
+     */
+    public Map<Long, String> getChauffeurDetails(Collection<Long> chauffeurIds) {
+        return details.getAll(chauffeurIds);
+    }
 
-        // Otherwise, get from external service
-        try {
-            WebTarget target = client.target(CHAUFFEUR_SERVICE_URL).path(String.valueOf(chauffeurId));
-            Response response = target.request(MediaType.APPLICATION_JSON).get();
+    /**
+     * Drop the cached details of a chauffeur changed through this application
+     */
+    public void invalidateChauffeurDetails(Long chauffeurId) {
+        details.invalidate(chauffeurId);
+    }
 
-            if (response.getStatus() == 200) {
-                return response.readEntity(String.class);
-            }
+    /**
+     * Hit/miss statistics of the details cache
+     */
+    public ExpiringCache<Long, String> getDetailsCache() {
+        return details.getCache();
+    }
 
-            LOGGER.warning(
-                    "Chauffeur details service returned " + response.getStatus() + " for chauffeur " + chauffeurId);
+    private String localChauffeurDetails(Long chauffeurId) {
+        if (!localResourceService.isTestChauffeur(chauffeurId)) {
             return null;
-
-        } catch (Exception e) {
-            LOGGER.severe("Error getting chauffeur details: " + e.getMessage());
-            return null; // Return null so callers can handle "Indisponible"
         }
+        LocalChauffeur chauffeur = localResourceService.getChauffeurById(chauffeurId);
+        return chauffeur != null ? jsonb.toJson(chauffeur) : null;
     }
 
     /**
@@ -129,10 +240,8 @@ public class ChauffeurServiceClient {
         }
 
         // Try to add external chauffeurs
-        try {
-            WebTarget target = client.target(CHAUFFEUR_SERVICE_URL).queryParam("available", true);
-            Response response = target.request(MediaType.APPLICATION_JSON).get();
-
+        try (Response response = client.target(CHAUFFEUR_SERVICE_URL).queryParam("available", true)
+                .request(MediaType.APPLICATION_JSON).get()) {
             if (response.getStatus() == 200) {
                 String externalJson = response.readEntity(String.class);
                 // Parse external chauffeurs and add them
@@ -0,0 +1,222 @@
+package com.jakarta.udb.agencetransportpart3.integration;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Small size-capped cache with a time-to-live, for remote lookups of data
+ * that rarely changes. Eviction is least-recently-used; entries older than
+ * the TTL are reloaded on access. Null values are never cached, so a
+ * failed remote call is retried on the next access.
+ *
+ * Loaders run outside the cache lock: two threads missing the same key at
+ * the same time may both load it, which only costs a duplicate call. A load
+ * that was running when an invalidation happened may have read the old
+ * state, so its result is returned but not cached.
+ */
+public class ExpiringCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Access-ordered, guarded by this
+    private final LinkedHashMap<K, CachedValue<V>> entries;
+    // Bumped by every invalidation, guarded by this
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static final class CachedValue<V> {
+        final V value;
+        final long expiresAt;
+
+        CachedValue(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public ExpiringCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                if (size() > ExpiringCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached value for the key, loading (and caching a non-null result) on a
+     * miss or after expiry
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation();
+        V value = loader.apply(key);
+        if (value != null) {
+            putIfCurrent(key, value, loadGeneration);
+        }
+        return value;
+    }
+
+    /**
+     * Same as {@link #get} for a non-blocking loader; a hit completes at once,
+     * a miss caches the result when the loader completes with a non-null value
+     */
+    public CompletionStage<V> getAsync(K key, Function<? super K, ? extends CompletionStage<V>> loader) {
+        V cached = cached(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation();
+        return loader.apply(key).thenApply(value -> {
+            if (value != null) {
+                putIfCurrent(key, value, loadGeneration);
+            }
+            return value;
+        });
+    }
+
+    /**
+     * Cached values for several keys; the misses are loaded together by one
+     * call of {@code loader} and its non-null results cached. Keys the loader
+     * cannot resolve are left out of the result.
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys,
+            Function<? super Set<K>, ? extends Map<K, ? extends V>> loader) {
+        Map<K, V> values = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        for (K key : keys) {
+            V cached = cached(key);
+            if (cached != null) {
+                values.put(key, cached);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return values;
+        }
+
+        misses.addAndGet(missing.size());
+        long loadGeneration = generation();
+        loader.apply(missing).forEach((key, value) -> {
+            if (value != null && missing.contains(key)) {
+                putIfCurrent(key, value, loadGeneration);
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Live value for the key (counted as a hit), or null; drops an expired entry
+     */
+    private synchronized V cached(K key) {
+        CachedValue<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt < 0) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        entries.remove(key);
+        return null;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new CachedValue<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Cache a loaded value unless something was invalidated since the load
+     * started; any invalidation counts, as a predicate cannot be matched
+     * against keys ahead of time
+     */
+    private synchronized void putIfCurrent(K key, V value, long loadGeneration) {
+        if (generation == loadGeneration) {
+            put(key, value);
+        }
+    }
+
+    /**
+     * Drop one key, e.g. after the record was changed through this application
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    /**
+     * Drop every key matching the predicate
+     */
+    public synchronized void invalidateIf(Predicate<? super K> predicate) {
+        generation++;
+        entries.keySet().removeIf(predicate);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return name + " cache{size=" + size() + "/" + maxSize + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", hitRate=" + String.format("%.2f", getHitRate()) + "}";
+    }
+}
@@ -0,0 +1,235 @@
+package com.jakarta.udb.agencetransportpart3.integration;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonStructure;
+import jakarta.json.JsonValue;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Details lookups of one remote resource (buses of Service 1, chauffeurs of
+ * Service 2), shared by the service clients. Test resources are answered
+ * locally, others from an ExpiringCache; misses are asked of the service
+ * with GET ?ids=1,2,3, falling back to concurrent single lookups when the
+ * service does not answer that with a list.
+ */
+final class RemoteDetails {
+
+    private static final Logger LOGGER = Logger.getLogger(RemoteDetails.class.getName());
+
+    // Ids per ?ids= request, to keep the URL short
+    static final int MAX_IDS_PER_REQUEST = 50;
+
+    // Single lookups in flight at a time when the batch request is refused
+    static final int MAX_CONCURRENT_LOOKUPS = 8;
+
+    private final String resource;
+    private final String noun;
+    private final Client client;
+    private final Supplier<String> serviceUrl;
+    private final Function<Long, String> localDetails;
+    private final ExpiringCache<Long, String> cache;
+
+    /**
+     * @param resource     name used in log messages, e.g. "Bus"
+     * @param localDetails JSON of a test resource, or null for a remote one
+     */
+    RemoteDetails(String resource, Client client, Supplier<String> serviceUrl,
+            Function<Long, String> localDetails, ExpiringCache<Long, String> cache) {
+        this.resource = resource;
+        this.noun = resource.toLowerCase();
+        this.client = client;
+        this.serviceUrl = serviceUrl;
+        this.localDetails = localDetails;
+        this.cache = cache;
+    }
+
+    ExpiringCache<Long, String> getCache() {
+        return cache;
+    }
+
+    String get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        String local = localDetails.apply(id);
+        return local != null ? local : cache.get(id, this::fetch);
+    }
+
+    /**
+     * Details keyed by id; ids that cannot be resolved are left out.
+     * One ?ids= request per {@value #MAX_IDS_PER_REQUEST} ids not served
+     * locally or from the cache.
+     */
+    Map<Long, String> getAll(Collection<Long> ids) {
+        Map<Long, String> details = new LinkedHashMap<>();
+        Set<Long> remote = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id == null || details.containsKey(id)) {
+                continue;
+            }
+            String local = localDetails.apply(id);
+            if (local != null) {
+                details.put(id, local);
+            } else {
+                remote.add(id);
+            }
+        }
+
+        details.putAll(cache.getAll(remote, this::fetchAll));
+        return details;
+    }
+
+    void invalidate(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    private String fetch(Long id) {
+        try (Response response = client.target(serviceUrl.get()).path(String.valueOf(id))
+                .request(MediaType.APPLICATION_JSON).get()) {
+            return read(response, id);
+        } catch (Exception e) {
+            LOGGER.severe("Error getting " + noun + " details: " + e.getMessage());
+            return null; // Return null so callers can handle "Indisponible"
+        }
+    }
+
+    private Map<Long, String> fetchAll(Set<Long> ids) {
+        Map<Long, String> details = new HashMap<>();
+        for (List<Long> chunk : chunks(ids, MAX_IDS_PER_REQUEST)) {
+            Map<Long, String> fetched = fetchBatch(chunk);
+            details.putAll(fetched != null ? fetched : fetchEach(chunk));
+        }
+        return details;
+    }
+
+    /**
+     * One GET ?ids= request; null when the service does not answer it with a list
+     */
+    private Map<Long, String> fetchBatch(List<Long> ids) {
+        try (Response response = client.target(serviceUrl.get())
+                .queryParam("ids", ids.stream().map(String::valueOf).collect(Collectors.joining(",")))
+                .request(MediaType.APPLICATION_JSON).get()) {
+            if (response.getStatus() == 200) {
+                Map<Long, String> details = parse(response.readEntity(String.class), ids);
+                if (details != null) {
+                    return details;
+                }
+            }
+            LOGGER.warning(resource + " batch lookup returned " + response.getStatus()
+                    + ", falling back to single lookups");
+            return null;
+        } catch (Exception e) {
+            LOGGER.warning("Error in " + noun + " batch lookup: " + e.getMessage()
+                    + ", falling back to single lookups");
+            return null;
+        }
+    }
+
+    /**
+     * Single lookups, {@value #MAX_CONCURRENT_LOOKUPS} in flight at a time
+     */
+    private Map<Long, String> fetchEach(List<Long> ids) {
+        Map<Long, String> details = new HashMap<>();
+        for (List<Long> wave : chunks(ids, MAX_CONCURRENT_LOOKUPS)) {
+            List<CompletableFuture<String>> lookups = new ArrayList<>();
+            wave.forEach(id -> lookups.add(fetchAsync(id).toCompletableFuture()));
+            for (int i = 0; i < wave.size(); i++) {
+                String json = lookups.get(i).join();
+                if (json != null) {
+                    details.put(wave.get(i), json);
+                }
+            }
+        }
+        return details;
+    }
+
+    private CompletionStage<String> fetchAsync(Long id) {
+        try {
+            return client.target(serviceUrl.get()).path(String.valueOf(id))
+                    .request(MediaType.APPLICATION_JSON).rx().get()
+                    .thenApply(response -> {
+                        try (response) {
+                            return read(response, id);
+                        }
+                    })
+                    .exceptionally(e -> {
+                        LOGGER.severe("Error getting " + noun + " details: " + e.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            LOGGER.severe("Error getting " + noun + " details: " + e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private String read(Response response, Long id) {
+        if (response.getStatus() == 200) {
+            return response.readEntity(String.class);
+        }
+        LOGGER.warning(resource + " details service returned " + response.getStatus()
+                + " for " + noun + " " + id);
+        return null;
+    }
+
+    private static <E> List<List<E>> chunks(Collection<E> elements, int size) {
+        List<E> all = new ArrayList<>(elements);
+        List<List<E>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += size) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + size)));
+        }
+        return chunks;
+    }
+
+    /**
+     * JSON of each object of the array response whose "id" was asked for;
+     * null if the response is not an array. Extra objects (a service that
+     * ignores ?ids= answers with its whole list) are dropped.
+     */
+    static Map<Long, String> parse(String json, Collection<Long> wanted) {
+        JsonStructure structure;
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            structure = reader.read();
+        }
+        if (structure.getValueType() != JsonValue.ValueType.ARRAY) {
+            return null;
+        }
+
+        Map<Long, String> details = new HashMap<>();
+        for (JsonValue value : structure.asJsonArray()) {
+            if (value.getValueType() != JsonValue.ValueType.OBJECT) {
+                continue;
+            }
+            JsonObject object = value.asJsonObject();
+            JsonValue id = object.get("id");
+            if (id != null && id.getValueType() == JsonValue.ValueType.NUMBER) {
+                Long key = object.getJsonNumber("id").longValue();
+                if (wanted.contains(key)) {
+                    details.put(key, object.toString());
+                }
+            }
+        }
+        return details;
+    }
+}
@@ -0,0 +1,89 @@
+package com.jakarta.udb.agencetransportpart3.integration;
+
+import com.jakarta.udb.agencetransportpart3.config.ServiceConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Shared JAX-RS clients for Service 1 (bus) and Service 2 (chauffeurs).
+ *
+ * Each service gets one client for the whole application instead of one per
+ * caller. Connect and read timeouts come from application.properties, so a
+ * slow service fails the call instead of pinning the request thread, and
+ * async (rx()) calls run on the container's managed executor.
+ *
+ * No connection pool is configured here: the Jakarta REST API has no
+ * setting for it, and the only dependency is the platform API. Connection
+ * reuse is whatever the runtime's connector does. With Jersey's default
+ * connector (GlassFish) that is the JDK HttpURLConnection keep-alive cache,
+ * sized JVM-wide by the http.keepAlive and http.maxConnections system
+ * properties (idle connections kept per host, 5 by default); there is no
+ * limit on open connections.
+ *
+ * Callers must close every Response, e.g. with try-with-resources, or its
+ * connection cannot go back to that cache.
+ */
+@ApplicationScoped
+public class RestClientFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(RestClientFactory.class.getName());
+
+    @Inject
+    private ServiceConfig serviceConfig;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private Client busClient;
+    private Client chauffeurClient;
+
+    @PostConstruct
+    public void init() {
+        busClient = build(serviceConfig.getBusServiceConnectTimeout(), serviceConfig.getBusServiceTimeout());
+        chauffeurClient = build(serviceConfig.getChauffeurServiceConnectTimeout(),
+                serviceConfig.getChauffeurServiceTimeout());
+        LOGGER.info("REST clients ready (bus " + serviceConfig.getBusServiceConnectTimeout() + "/"
+                + serviceConfig.getBusServiceTimeout() + " ms, chauffeur "
+                + serviceConfig.getChauffeurServiceConnectTimeout() + "/"
+                + serviceConfig.getChauffeurServiceTimeout() + " ms connect/read)");
+    }
+
+    private Client build(int connectTimeoutMillis, int readTimeoutMillis) {
+        ClientBuilder builder = ClientBuilder.newBuilder()
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS);
+        if (executor != null) {
+            builder.executorService(executor);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Client for Service 1 (bus management)
+     */
+    public Client getBusClient() {
+        return busClient;
+    }
+
+    /**
+     * Client for Service 2 (chauffeur management)
+     */
+    public Client getChauffeurClient() {
+        return chauffeurClient;
+    }
+
+    @PreDestroy
+    public void close() {
+        busClient.close();
+        chauffeurClient.close();
+    }
+}
@@ -0,0 +1,54 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * What the archive needs to know about an archivable entity type
+ */
+final class ArchiveSchema<T> {
+
+    private final Class<T> type;
+    private final Function<T, Long> idGetter;
+    private final Function<T, LocalDateTime> dateGetter;
+    private final Function<T, String> statusGetter;
+    private final Set<String> finalStatuses;
+
+    ArchiveSchema(Class<T> type, Function<T, Long> idGetter, Function<T, LocalDateTime> dateGetter,
+            Function<T, String> statusGetter, Set<String> finalStatuses) {
+        this.type = type;
+        this.idGetter = idGetter;
+        this.dateGetter = dateGetter;
+        this.statusGetter = statusGetter;
+        this.finalStatuses = finalStatuses;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    Long idOf(T entity) {
+        return idGetter.apply(entity);
+    }
+
+    LocalDateTime dateOf(T entity) {
+        return dateGetter.apply(entity);
+    }
+
+    /**
+     * Upper-cased status, or null
+     */
+    String statusOf(T entity) {
+        String status = statusGetter.apply(entity);
+        return status == null ? null : status.toUpperCase();
+    }
+
+    /**
+     * Whether the entity reached a final state and departed before the cutoff
+     */
+    boolean isArchivable(T entity, LocalDateTime cutoff) {
+        LocalDateTime date = dateOf(entity);
+        return date != null && date.isBefore(cutoff) && finalStatuses.contains(statusOf(entity));
+    }
+}
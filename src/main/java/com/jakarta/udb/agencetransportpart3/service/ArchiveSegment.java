@@ -0,0 +1,208 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.bind.Jsonb;
+
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One immutable archive file: entities of one type whose departure date
+ * falls in a given month. Segments are written once (temp file, fsync,
+ * atomic rename) and never modified; a month archived in several runs
+ * simply has several segments.
+ *
+ * File layout:
+ * <pre>
+ * gzip(JSON array) | footer (UTF-8 JSON) | footer length (int) | magic (int)
+ * </pre>
+ * The footer (see SegmentFooter) is read from the tail of the file when
+ * the catalog is loaded; the data is only decompressed by queries that
+ * need it. Segments written before compression was introduced (plain
+ * ".json") are still readable; their footer is computed by one scan.
+ */
+class ArchiveSegment<T> {
+
+    static final String SUFFIX = ".json.gz";
+    static final String PLAIN_SUFFIX = ".json";
+
+    private static final int MAGIC = 0x41534631; // "ASF1"
+    private static final int TRAILER = 8;
+
+    private final Path path;
+    private final ArchiveSchema<T> schema;
+    private final YearMonth partition;
+    private final SegmentFooter footer;
+
+    private ArchiveSegment(Path path, ArchiveSchema<T> schema, YearMonth partition, SegmentFooter footer) {
+        this.path = path;
+        this.schema = schema;
+        this.partition = partition;
+        this.footer = footer;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    YearMonth getPartition() {
+        return partition;
+    }
+
+    SegmentFooter getFooter() {
+        return footer;
+    }
+
+    /**
+     * Lazily read the segment; the stream must be closed
+     */
+    Stream<T> read(Jsonb jsonb) {
+        try {
+            return JsonArrayStreams.read(openData(), schema.getType(), jsonb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Reader openData() throws IOException {
+        if (!isCompressed(path)) {
+            return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        }
+        long dataLength = Files.size(path) - TRAILER - readTrailer(path).getInt(0);
+        InputStream data = new LimitedInputStream(Files.newInputStream(path), dataLength);
+        return new InputStreamReader(new GZIPInputStream(data, 8192), StandardCharsets.UTF_8);
+    }
+
+    private static boolean isCompressed(Path path) {
+        return path.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    // ==============================
+    // OPEN / WRITE
+    // ==============================
+
+    /**
+     * Open an existing segment, reading only its footer
+     */
+    static <T> ArchiveSegment<T> open(Path path, ArchiveSchema<T> schema, YearMonth partition, Jsonb jsonb)
+            throws IOException {
+        if (isCompressed(path)) {
+            return new ArchiveSegment<>(path, schema, partition, readFooter(path));
+        }
+        ArchiveSegment<T> plain = new ArchiveSegment<>(path, schema, partition, new SegmentFooter());
+        try (Stream<T> entities = plain.read(jsonb)) {
+            entities.forEach(entity -> plain.footer.add(entity, schema));
+        }
+        return plain;
+    }
+
+    static <T> ArchiveSegment<T> write(Path path, ArchiveSchema<T> schema, YearMonth partition,
+            Collection<T> entities, Jsonb jsonb) throws IOException {
+        SegmentFooter footer = new SegmentFooter();
+        entities.forEach(entity -> footer.add(entity, schema));
+        byte[] footerBytes = footer.toJson().getBytes(StandardCharsets.UTF_8);
+
+        Files.createDirectories(path.getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp.toFile())) {
+            // Neither the gzip stream nor the writer is closed: that would close the file
+            GZIPOutputStream gzip = new GZIPOutputStream(output, 8192);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            JsonArrayStreams.write(writer, entities.iterator(), jsonb);
+            writer.flush();
+            gzip.finish();
+
+            DataOutputStream trailer = new DataOutputStream(output);
+            trailer.write(footerBytes);
+            trailer.writeInt(footerBytes.length);
+            trailer.writeInt(MAGIC);
+            trailer.flush();
+            output.getFD().sync();
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        DurableFiles.syncDirectory(path.toAbsolutePath().getParent());
+        return new ArchiveSegment<>(path, schema, partition, footer);
+    }
+
+    private static ByteBuffer readTrailer(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER);
+            channel.read(trailer, channel.size() - TRAILER);
+            if (trailer.getInt(4) != MAGIC) {
+                throw new IOException("Not an archive segment: " + path.getFileName());
+            }
+            return trailer;
+        }
+    }
+
+    private static SegmentFooter readFooter(Path path) throws IOException {
+        int length = readTrailer(path).getInt(0);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer footer = ByteBuffer.allocate(length);
+            channel.read(footer, channel.size() - TRAILER - length);
+            return SegmentFooter.fromJson(new String(footer.array(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Stops after the compressed data so the footer is never fed to gzip
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import com.jakarta.udb.agencetransportpart3.config.ServiceConfig;
+import com.jakarta.udb.agencetransportpart3.entity.Reservation;
+import com.jakarta.udb.agencetransportpart3.entity.Trajet;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.JsonException;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Hot/cold tiering. A scheduled job moves trajets and reservations that
+ * reached a final state and departed more than "archive.age.days" ago out
+ * of the live store into immutable, gzip-compressed archive segments, one
+ * directory per departure month:
+ * <pre>
+ * AgenceTransport_data/archive/trajets/2025-01/segment-20250415020000.json.gz
+ * </pre>
+ * The live files then only hold data that can still change. Each segment
+ * ends with a footer (count, id and departure ranges, count per status)
+ * kept in memory, so counts are answered without decompressing anything
+ * and range queries only open segments whose departure range intersects
+ * the query.
+ *
+ * A segment is written before its entities leave the live store, so a
+ * crash in between leaves duplicates, never losses; readers prefer the
+ * live copy and de-duplicate by id. The next run, started right after
+ * deployment, finds those entities in a segment already and only removes
+ * them from the live store, so no footer ever counts an entity twice.
+ */
+@ApplicationScoped
+public class ArchiveService {
+
+    private static final Logger LOGGER = Logger.getLogger(ArchiveService.class.getName());
+
+    private static final Path ARCHIVE_DIR = Path.of(JsonPersistenceService.DATA_DIR, "archive");
+    private static final DateTimeFormatter SEGMENT_STAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final ArchiveSchema<Trajet> TRAJETS = new ArchiveSchema<>(Trajet.class,
+            Trajet::getId, Trajet::getDepartureDate, Trajet::getStatus,
+            Set.of("COMPLETED", "CANCELLED"));
+    // A confirmed reservation can still be cancelled; only a cancelled one is final
+    private static final ArchiveSchema<Reservation> RESERVATIONS = new ArchiveSchema<>(Reservation.class,
+            Reservation::getId, Reservation::getDepartureDate, Reservation::getStatus,
+            Set.of("CANCELLED"));
+
+    @Inject
+    private JsonPersistenceService persistenceService;
+
+    @Inject
+    private ServiceConfig serviceConfig;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    private final Map<Class<?>, List<ArchiveSegment<?>>> segments = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> job;
+
+    /**
+     * Instantiate the bean at deployment so the job starts without a request
+     */
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        // Observing the event is enough to create the bean
+    }
+
+    @PostConstruct
+    public void init() {
+        loadCatalog(TRAJETS);
+        loadCatalog(RESERVATIONS);
+
+        long interval = serviceConfig.getArchiveIntervalHours();
+        if (interval > 0) {
+            // First run at once, to finish a move interrupted by a crash
+            job = scheduler.scheduleWithFixedDelay(this::runScheduled, 0, interval, TimeUnit.HOURS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (job != null) {
+            job.cancel(false);
+        }
+    }
+
+    private void runScheduled() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Archive job failed", e);
+        }
+    }
+
+    // ==============================
+    // ARCHIVING
+    // ==============================
+
+    /**
+     * Archive every eligible trajet and reservation now.
+     * Returns the number of entities moved.
+     */
+    public synchronized int archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(serviceConfig.getArchiveAgeDays());
+        int moved = archive(TRAJETS, cutoff) + archive(RESERVATIONS, cutoff);
+        if (moved > 0) {
+            LOGGER.info("Archived " + moved + " entities departed before " + cutoff);
+        }
+        return moved;
+    }
+
+    /**
+     * Runs under the write lock of the type so nothing changes between
+     * selecting the entities and removing them from the live store
+     */
+    private <T> int archive(ArchiveSchema<T> schema, LocalDateTime cutoff) {
+        Class<T> clazz = schema.getType();
+        return persistenceService.write(clazz, () -> {
+            List<T> eligible = persistenceService.find(clazz, entity -> schema.isArchivable(entity, cutoff));
+            if (eligible.isEmpty()) {
+                return 0;
+            }
+
+            Set<Long> ids = eligible.stream().map(schema::idOf).collect(Collectors.toSet());
+            Set<Long> archived = archivedAmong(schema, ids);
+            Map<YearMonth, List<T>> byMonth = eligible.stream()
+                    .filter(entity -> !archived.contains(schema.idOf(entity)))
+                    .collect(Collectors.groupingBy(
+                            entity -> YearMonth.from(schema.dateOf(entity)), TreeMap::new, Collectors.toList()));
+            String stamp = LocalDateTime.now().format(SEGMENT_STAMP);
+            try {
+                for (Map.Entry<YearMonth, List<T>> month : byMonth.entrySet()) {
+                    Path path = typeDirectory(clazz).resolve(month.getKey().toString())
+                            .resolve(SEGMENT_PREFIX + stamp + ArchiveSegment.SUFFIX);
+                    catalog(clazz).add(ArchiveSegment.write(path, schema, month.getKey(), month.getValue(), jsonb));
+                }
+            } catch (IOException e) {
+                // Segments already written only duplicate live data; nothing is removed
+                LOGGER.log(Level.SEVERE, "Cannot write archive segment for " + clazz.getSimpleName(), e);
+                return 0;
+            }
+
+            if (!archived.isEmpty()) {
+                LOGGER.warning(archived.size() + " " + clazz.getSimpleName()
+                        + " entities were archived but still live; removing them");
+            }
+            persistenceService.removeArchived(clazz, ids);
+            return eligible.size();
+        });
+    }
+
+    /**
+     * Ids among {@code ids} already stored in a segment: left live by a
+     * crash after the segment was written, or by a removal that never
+     * reached disk. Only segments whose id range covers one of them are read.
+     */
+    private <T> Set<Long> archivedAmong(ArchiveSchema<T> schema, Set<Long> ids) {
+        Set<Long> found = new HashSet<>();
+        for (ArchiveSegment<T> segment : segments(schema.getType())) {
+            SegmentFooter footer = segment.getFooter();
+            if (ids.stream().noneMatch(id -> id >= footer.getMinId() && id <= footer.getMaxId())) {
+                continue;
+            }
+            try (Stream<T> entities = segment.read(jsonb)) {
+                entities.map(schema::idOf).filter(ids::contains).forEach(found::add);
+            } catch (UncheckedIOException | JsonException e) {
+                // Unreadable ids are archived again: a duplicate rather than a loss
+                LOGGER.log(Level.WARNING, "Cannot read archive segment " + segment.getPath(), e);
+            }
+        }
+        return found;
+    }
+
+    // ==============================
+    // QUERIES
+    // ==============================
+
+    /**
+     * Whether any archive segment of the type has departures in [from, to]
+     */
+    public boolean covers(Class<?> clazz, LocalDateTime from, LocalDateTime to) {
+        return catalog(clazz).stream().anyMatch(segment -> segment.getFooter().overlaps(from, to));
+    }
+
+    /**
+     * Archived entities departing in [from, to] (null bounds are open),
+     * de-duplicated by id. Segments outside the range are not opened.
+     */
+    public <T> List<T> findBetween(Class<T> clazz, LocalDateTime from, LocalDateTime to) {
+        Map<Long, T> found = new LinkedHashMap<>();
+        for (ArchiveSegment<T> segment : segments(clazz)) {
+            if (!segment.getFooter().overlaps(from, to)) {
+                continue;
+            }
+            ArchiveSchema<T> schema = schema(clazz);
+            try (Stream<T> entities = segment.read(jsonb)) {
+                entities.filter(entity -> inRange(schema.dateOf(entity), from, to))
+                        .forEach(entity -> found.put(schema.idOf(entity), entity));
+            } catch (UncheckedIOException | JsonException e) {
+                LOGGER.log(Level.WARNING, "Cannot read archive segment " + segment.getPath(), e);
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    /**
+     * The archived entity with the given id, or null. Only segments whose
+     * id range covers it are opened.
+     */
+    public <T> T findById(Class<T> clazz, Long id) {
+        ArchiveSchema<T> schema = schema(clazz);
+        for (ArchiveSegment<T> segment : segments(clazz)) {
+            SegmentFooter footer = segment.getFooter();
+            if (id < footer.getMinId() || id > footer.getMaxId()) {
+                continue;
+            }
+            try (Stream<T> entities = segment.read(jsonb)) {
+                Optional<T> found = entities.filter(entity -> id.equals(schema.idOf(entity))).findFirst();
+                if (found.isPresent()) {
+                    return found.get();
+                }
+            } catch (UncheckedIOException | JsonException e) {
+                LOGGER.log(Level.WARNING, "Cannot read archive segment " + segment.getPath(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Number of archived entities with the given status (all when null),
+     * answered from segment footers alone
+     */
+    public long count(Class<?> clazz, String status) {
+        return catalog(clazz).stream()
+                .mapToLong(segment -> count(segment.getFooter(), status))
+                .sum();
+    }
+
+    /**
+     * Number of archived entities with the given status (all when null)
+     * departing in [from, to]. Segments entirely inside the range are
+     * counted from their footer, segments outside it are skipped, and
+     * only segments straddling a bound are read.
+     */
+    public <T> long countBetween(Class<T> clazz, String status, LocalDateTime from, LocalDateTime to) {
+        ArchiveSchema<T> schema = schema(clazz);
+        String wanted = status == null ? null : status.toUpperCase();
+        long total = 0;
+        for (ArchiveSegment<T> segment : segments(clazz)) {
+            SegmentFooter footer = segment.getFooter();
+            if (!footer.overlaps(from, to)) {
+                continue;
+            }
+            if (footer.within(from, to)) {
+                total += count(footer, wanted);
+                continue;
+            }
+            try (Stream<T> entities = segment.read(jsonb)) {
+                total += entities
+                        .filter(entity -> inRange(schema.dateOf(entity), from, to))
+                        .filter(entity -> wanted == null || wanted.equals(schema.statusOf(entity)))
+                        .count();
+            } catch (UncheckedIOException | JsonException e) {
+                LOGGER.log(Level.WARNING, "Cannot read archive segment " + segment.getPath(), e);
+            }
+        }
+        return total;
+    }
+
+    private static long count(SegmentFooter footer, String status) {
+        return status == null
+                ? footer.getCount()
+                : footer.getStatusCounts().getOrDefault(status.toUpperCase(), 0);
+    }
+
+    private static boolean inRange(LocalDateTime date, LocalDateTime from, LocalDateTime to) {
+        return date != null && (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+    }
+
+    // ==============================
+    // CATALOG
+    // ==============================
+
+    private List<ArchiveSegment<?>> catalog(Class<?> clazz) {
+        return segments.computeIfAbsent(clazz, c -> new CopyOnWriteArrayList<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<ArchiveSegment<T>> segments(Class<T> clazz) {
+        List<ArchiveSegment<T>> typed = new ArrayList<>();
+        catalog(clazz).forEach(segment -> typed.add((ArchiveSegment<T>) segment));
+        typed.sort(Comparator.comparing(ArchiveSegment::getPartition));
+        return typed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArchiveSchema<T> schema(Class<T> clazz) {
+        if (clazz == Trajet.class) {
+            return (ArchiveSchema<T>) TRAJETS;
+        }
+        if (clazz == Reservation.class) {
+            return (ArchiveSchema<T>) RESERVATIONS;
+        }
+        throw new IllegalArgumentException("Not an archived type: " + clazz.getName());
+    }
+
+    private static Path typeDirectory(Class<?> clazz) {
+        return ARCHIVE_DIR.resolve(clazz.getSimpleName().toLowerCase() + "s");
+    }
+
+    /**
+     * List the segments already on disk, reading only their footers
+     */
+    private <T> void loadCatalog(ArchiveSchema<T> schema) {
+        Path directory = typeDirectory(schema.getType());
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> months = Files.list(directory)) {
+            for (Path monthDirectory : (Iterable<Path>) months::iterator) {
+                YearMonth month;
+                try {
+                    month = YearMonth.parse(monthDirectory.getFileName().toString());
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(monthDirectory)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        if (name.startsWith(SEGMENT_PREFIX)
+                                && (name.endsWith(ArchiveSegment.SUFFIX) || name.endsWith(ArchiveSegment.PLAIN_SUFFIX))) {
+                            openSegment(file, schema, month);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Cannot list archive of " + schema.getType().getSimpleName(), e);
+        }
+    }
+
+    private <T> void openSegment(Path file, ArchiveSchema<T> schema, YearMonth month) {
+        try {
+            catalog(schema.getType()).add(ArchiveSegment.open(file, schema, month, jsonb));
+        } catch (IOException | UncheckedIOException | JsonException e) {
+            LOGGER.log(Level.SEVERE, "Ignoring unreadable archive segment " + file, e);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.jakarta.udb.agencetransportpart3.service;
 
 import com.jakarta.udb.agencetransportpart3.entity.Bus;
+import com.jakarta.udb.agencetransportpart3.integration.BusServiceClient;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -19,6 +22,9 @@ public class BusService {
     @Inject
     private JsonPersistenceService persistenceService;
 
+    @Inject
+    private BusServiceClient busServiceClient;
+
     /**
      * Get all buses
      */
@@ -26,52 +32,60 @@ public class BusService {
         return persistenceService.loadAll(Bus.class);
     }
 
+    /**
+     * Get a page of buses with an id greater than {@code after}
+     */
+    public List<Bus> findPage(Long after, int limit) {
+        return persistenceService.page(Bus.class, after, limit);
+    }
+
     /**
      * Get available buses (etat == "DISPONIBLE")
      */
     public List<Bus> findAvailable() {
-        List<Bus> all = findAll();
-        List<Bus> result = new ArrayList<>();
-        for (Bus b : all) {
-            if (b.getEtat() != null && b.getEtat().equalsIgnoreCase("DISPONIBLE")) {
-                result.add(b);
-            }
-        }
-        return result;
+        return persistenceService.find(Bus.class, BusService::isAvailable);
+    }
+
+    public List<Bus> findAvailablePage(Long after, int limit) {
+        return persistenceService.page(Bus.class, after, limit, BusService::isAvailable);
+    }
+
+    private static boolean isAvailable(Bus bus) {
+        return bus.getEtat() != null && bus.getEtat().equalsIgnoreCase("DISPONIBLE");
     }
 
     public Bus findById(Long id) {
-        return findAll().stream()
-                .filter(b -> b.getId() != null && b.getId().equals(id))
-                .findFirst().orElse(null);
+        return persistenceService.findById(Bus.class, id);
+    }
+
+    /**
+     * Buses with the given ids, in the order asked; unknown ids are skipped
+     */
+    public List<Bus> findByIds(Collection<Long> ids) {
+        List<Bus> buses = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Bus bus = findById(id);
+            if (bus != null) {
+                buses.add(bus);
+            }
+        }
+        return buses;
     }
 
     public Bus create(Bus bus) {
-        List<Bus> all = findAll();
-        long nextId = all.stream().mapToLong(b -> b.getId() == null ? 0L : b.getId()).max().orElse(0L) + 1;
-        bus.setId(nextId);
         if (bus.getNumber() == null && bus.getModele() != null) {
             bus.setNumber(bus.getModele());
         }
-        all.add(bus);
-        persistenceService.saveAll(all, Bus.class);
+        bus.setId(persistenceService.nextId(Bus.class));
+        persistenceService.save(bus, Bus.class);
         LOGGER.info("Created bus id=" + bus.getId());
         return bus;
     }
 
     public Bus update(Long id, Bus bus) {
-        List<Bus> all = findAll();
         bus.setId(id);
-        boolean found = false;
-        for (int i = 0; i < all.size(); i++) {
-            if (all.get(i).getId() != null && all.get(i).getId().equals(id)) {
-                all.set(i, bus);
-                found = true;
-                break;
-            }
-        }
-        if (found) {
-            persistenceService.saveAll(all, Bus.class);
+        if (persistenceService.update(bus, Bus.class)) {
+            busServiceClient.invalidateBusDetails(id);
             LOGGER.info("Updated bus id=" + id);
             return bus;
         }
@@ -79,10 +93,9 @@ public class BusService {
     }
 
     public boolean delete(Long id) {
-        List<Bus> all = findAll();
-        boolean removed = all.removeIf(b -> b.getId() != null && b.getId().equals(id));
+        boolean removed = persistenceService.delete(Bus.class, id);
         if (removed) {
-            persistenceService.saveAll(all, Bus.class);
+            busServiceClient.invalidateBusDetails(id);
             LOGGER.info("Deleted bus id=" + id);
         }
         return removed;
@@ -0,0 +1,57 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.time.Instant;
+
+/**
+ * One mutation of a trajet or reservation, as published by the ChangeFeed.
+ * Sequences increase by one per event and restart with the application.
+ */
+public class ChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, ARCHIVED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String entityType;
+    private final Long entityId;
+    private final Instant timestamp;
+    private final Object entity;
+
+    ChangeEvent(long sequence, Type type, String entityType, Long entityId, Object entity) {
+        this.sequence = sequence;
+        this.type = type;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.timestamp = Instant.now();
+        this.entity = entity;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * State after the change (a private copy); null for DELETED and ARCHIVED
+     */
+    public Object getEntity() {
+        return entity;
+    }
+}
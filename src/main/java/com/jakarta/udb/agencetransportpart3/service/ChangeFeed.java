@@ -0,0 +1,201 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import com.jakarta.udb.agencetransportpart3.config.ServiceConfig;
+import com.jakarta.udb.agencetransportpart3.entity.Reservation;
+import com.jakarta.udb.agencetransportpart3.entity.Trajet;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process change data capture for trajets and reservations.
+ *
+ * JsonPersistenceService publishes every mutation while it still holds the
+ * write lock of the type, so sequence order is commit order. The last N
+ * events are kept in a ring buffer: consumers pull what follows their last
+ * sequence ({@link #since}) or subscribe to be pushed new events. A
+ * consumer that falls more than N events behind has to resynchronize from
+ * the full lists.
+ */
+@ApplicationScoped
+public class ChangeFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeFeed.class.getName());
+
+    private static final Set<Class<?>> TRACKED = Set.of(Trajet.class, Reservation.class);
+
+    /**
+     * Receives the events of a subscription, in order, from a single thread
+     * at a time
+     */
+    public interface Listener {
+
+        void onChange(ChangeEvent event);
+
+        /**
+         * Called after each run of events, once the listener has caught up
+         */
+        default void onIdle() {
+        }
+
+        /**
+         * Events were dropped from the buffer before they could be delivered;
+         * the subscription is closed afterwards
+         */
+        default void onOverflow() {
+        }
+    }
+
+    @Inject
+    private ServiceConfig serviceConfig;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    // Guarded by this
+    private ChangeEvent[] buffer;
+    private long lastSequence;
+    private final Map<Subscription, Long> cursors = new LinkedHashMap<>();
+    private boolean dispatching;
+
+    @PostConstruct
+    public void init() {
+        buffer = new ChangeEvent[Math.max(1, serviceConfig.getChangeFeedCapacity())];
+    }
+
+    boolean tracks(Class<?> clazz) {
+        return TRACKED.contains(clazz);
+    }
+
+    /**
+     * Record a change; {@code entity} must already be a private copy
+     */
+    synchronized void publish(ChangeEvent.Type type, Class<?> clazz, Long id, Object entity) {
+        long sequence = ++lastSequence;
+        buffer[(int) (sequence % buffer.length)] = new ChangeEvent(sequence, type, clazz.getSimpleName(), id, entity);
+        if (!cursors.isEmpty() && !dispatching) {
+            dispatching = true;
+            executor.execute(this::dispatch);
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Whether the events following {@code sequence} are all still buffered.
+     * A sequence ahead of the feed (e.g. from before a restart) is not.
+     */
+    public synchronized boolean isAvailable(long sequence) {
+        return sequence >= oldestSequence() - 1 && sequence <= lastSequence;
+    }
+
+    /**
+     * Up to {@code limit} events after {@code sequence}, oldest first.
+     * Check {@link #isAvailable} first: missing events are silently skipped.
+     */
+    public synchronized List<ChangeEvent> since(long sequence, int limit) {
+        List<ChangeEvent> events = new ArrayList<>();
+        long from = Math.max(sequence + 1, oldestSequence());
+        for (long next = from; next <= lastSequence && events.size() < limit; next++) {
+            events.add(buffer[(int) (next % buffer.length)]);
+        }
+        return events;
+    }
+
+    /**
+     * Push every event after {@code sequence} to the listener, starting with
+     * the buffered ones; a null sequence means only new events
+     */
+    public Subscription subscribe(Long sequence, Listener listener) {
+        Subscription subscription = new Subscription(listener);
+        synchronized (this) {
+            cursors.put(subscription, sequence != null ? sequence : lastSequence);
+            if (!dispatching) {
+                dispatching = true;
+                executor.execute(this::dispatch);
+            }
+        }
+        return subscription;
+    }
+
+    private long oldestSequence() {
+        return Math.max(1, lastSequence - buffer.length + 1);
+    }
+
+    /**
+     * Deliver pending events to every subscription. Only one dispatch runs
+     * at a time, so each listener sees its events in order; listeners are
+     * called without holding the feed lock.
+     */
+    private void dispatch() {
+        while (true) {
+            Map<Subscription, List<ChangeEvent>> batches = new LinkedHashMap<>();
+            List<Subscription> overflowed = new ArrayList<>();
+            synchronized (this) {
+                for (Map.Entry<Subscription, Long> cursor : cursors.entrySet()) {
+                    if (!isAvailable(cursor.getValue())) {
+                        overflowed.add(cursor.getKey());
+                    } else if (cursor.getValue() < lastSequence) {
+                        batches.put(cursor.getKey(), since(cursor.getValue(), buffer.length));
+                        cursor.setValue(lastSequence);
+                    }
+                }
+                overflowed.forEach(cursors::remove);
+                if (batches.isEmpty() && overflowed.isEmpty()) {
+                    dispatching = false;
+                    return;
+                }
+            }
+
+            overflowed.forEach(subscription -> subscription.notifyOverflow());
+            batches.forEach((subscription, events) -> {
+                try {
+                    events.forEach(subscription.listener::onChange);
+                    subscription.listener.onIdle();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Dropping change feed subscriber", e);
+                    subscription.close();
+                }
+            });
+        }
+    }
+
+    /**
+     * Handle on a push subscription; closing it stops delivery
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final Listener listener;
+
+        private Subscription(Listener listener) {
+            this.listener = listener;
+        }
+
+        private void notifyOverflow() {
+            try {
+                listener.onOverflow();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Change feed overflow handler failed", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (ChangeFeed.this) {
+                cursors.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * Helpers for files replaced by "write temp, fsync, rename": the rename is
+ * only durable once the directory holding it is forced to disk too.
+ */
+final class DurableFiles {
+
+    private static final Logger LOGGER = Logger.getLogger(DurableFiles.class.getName());
+
+    private DurableFiles() {
+    }
+
+    /**
+     * Force the directory entries (creations, renames) of a directory to
+     * disk. Platforms that cannot open a directory (Windows) are skipped:
+     * there the rename is as durable as the file system makes it.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.fine("Cannot open " + directory + " to sync it: " + e.getMessage());
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Secondary index of one entity type: key → ids of the entities having
+ * that key. Created through {@link JsonPersistenceService#createIndex} and
+ * kept up to date by the resident store on every mutation, so lookups cost
+ * O(result) and counts O(1). Entities with a null key are not indexed.
+ */
+public class EntityIndex<T, K> {
+
+    private final Class<T> type;
+    private final Function<T, K> keyGetter;
+    final ConcurrentMap<K, Bucket> buckets;
+
+    EntityIndex(Class<T> type, Function<T, K> keyGetter) {
+        this(type, keyGetter, new ConcurrentHashMap<>());
+    }
+
+    EntityIndex(Class<T> type, Function<T, K> keyGetter, ConcurrentMap<K, Bucket> buckets) {
+        this.type = type;
+        this.keyGetter = keyGetter;
+        this.buckets = buckets;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Ids having the given key, in ascending order (weakly consistent view)
+     */
+    public NavigableSet<Long> ids(K key) {
+        Bucket bucket = key == null ? null : buckets.get(key);
+        return bucket == null
+                ? Collections.emptyNavigableSet()
+                : Collections.unmodifiableNavigableSet(bucket.ids);
+    }
+
+    public int count(K key) {
+        Bucket bucket = key == null ? null : buckets.get(key);
+        return bucket == null ? 0 : bucket.size.get();
+    }
+
+    /**
+     * Keys currently having at least one entity
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(buckets.keySet());
+    }
+
+    // Called by EntityStore under the write lock of the type
+
+    void update(Long id, T previous, T current) {
+        K oldKey = previous == null ? null : keyGetter.apply(previous);
+        K newKey = current == null ? null : keyGetter.apply(current);
+        if (oldKey != null && oldKey.equals(newKey)) {
+            return;
+        }
+        if (oldKey != null) {
+            Bucket bucket = buckets.get(oldKey);
+            if (bucket != null && bucket.ids.remove(id) && bucket.size.decrementAndGet() == 0) {
+                buckets.remove(oldKey);
+            }
+        }
+        if (newKey != null) {
+            Bucket bucket = buckets.computeIfAbsent(newKey, k -> new Bucket());
+            if (bucket.ids.add(id)) {
+                bucket.size.incrementAndGet();
+            }
+        }
+    }
+
+    void clear() {
+        buckets.clear();
+    }
+
+    static final class Bucket {
+        // ConcurrentSkipListSet.size() is O(n), hence the separate counter
+        final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+}
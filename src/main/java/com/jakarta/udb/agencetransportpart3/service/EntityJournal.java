@@ -0,0 +1,206 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.bind.Jsonb;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of mutations for one entity type.
+ * One JSON record per line:
+ * {"op":"PUT","id":12,"entity":{...}}, {"op":"PATCH","id":12,"patch":{...}}
+ * (a JSON Merge Patch holding only the changed fields) or {"op":"DELETE","id":12}
+ */
+class EntityJournal<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(EntityJournal.class.getName());
+
+    static final String OP_PUT = "PUT";
+    static final String OP_PATCH = "PATCH";
+    static final String OP_DELETE = "DELETE";
+
+    private final Path path;
+    private final Class<T> type;
+    private final Jsonb jsonb;
+
+    // Records written since the last compaction
+    private int pendingRecords;
+
+    // Highest id mentioned by a replayed record, deleted ones included
+    private long highestReplayedId;
+
+    EntityJournal(Path path, Class<T> type, Jsonb jsonb) {
+        this.path = path;
+        this.type = type;
+        this.jsonb = jsonb;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    synchronized int getPendingRecords() {
+        return pendingRecords;
+    }
+
+    synchronized long getHighestReplayedId() {
+        return highestReplayedId;
+    }
+
+    synchronized void appendPut(Long id, T entity) throws IOException {
+        append(putRecord(id, entity) + "\n", 1);
+    }
+
+    synchronized void appendPatch(Long id, JsonObject patch) throws IOException {
+        append(patchRecord(id, patch) + "\n", 1);
+    }
+
+    synchronized void appendDelete(Long id) throws IOException {
+        append(deleteRecord(id) + "\n", 1);
+    }
+
+    /**
+     * Append several records with a single write and sync.
+     * A null entity stands for a deletion.
+     */
+    synchronized void appendAll(Map<Long, T> changes) throws IOException {
+        StringBuilder records = new StringBuilder();
+        changes.forEach((id, entity) -> records
+                .append(entity != null ? putRecord(id, entity) : deleteRecord(id))
+                .append('\n'));
+        append(records.toString(), changes.size());
+    }
+
+    /**
+     * Append several patch records with a single write and sync
+     */
+    synchronized void appendPatches(Map<Long, JsonObject> patches) throws IOException {
+        StringBuilder records = new StringBuilder();
+        patches.forEach((id, patch) -> records.append(patchRecord(id, patch)).append('\n'));
+        append(records.toString(), patches.size());
+    }
+
+    private String putRecord(Long id, T entity) {
+        return "{\"op\":\"" + OP_PUT + "\",\"id\":" + id + ",\"entity\":" + jsonb.toJson(entity) + "}";
+    }
+
+    private String patchRecord(Long id, JsonObject patch) {
+        return "{\"op\":\"" + OP_PATCH + "\",\"id\":" + id + ",\"patch\":" + patch + "}";
+    }
+
+    private String deleteRecord(Long id) {
+        return "{\"op\":\"" + OP_DELETE + "\",\"id\":" + id + "}";
+    }
+
+    private void append(String records, int count) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        pendingRecords += count;
+    }
+
+    /**
+     * Drop every record; called once their effect is in a snapshot
+     */
+    synchronized void truncate() throws IOException {
+        Files.write(path, new byte[0],
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        pendingRecords = 0;
+    }
+
+    /**
+     * Re-apply logged mutations on top of a freshly loaded snapshot.
+     * Replay stops at the first unreadable line, which is a torn write
+     * left by a crash; the journal is cut back to the last good record so
+     * the next append does not land behind the torn bytes.
+     */
+    synchronized int replay(EntityStore<T> store) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (IOException e) {
+            LOGGER.severe("Error replaying journal " + path.getFileName() + ": " + e.getMessage());
+            return 0;
+        }
+
+        int applied = 0;
+        int offset = 0;
+        boolean torn = false;
+        boolean missingNewline = false;
+        while (offset < bytes.length) {
+            int end = offset;
+            while (end < bytes.length && bytes[end] != '\n') {
+                end++;
+            }
+            String line = new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+
+            if (!line.isBlank()) {
+                try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
+                    apply(store, jsonReader.readObject());
+                } catch (RuntimeException e) {
+                    torn = true;
+                    break;
+                }
+                applied++;
+            }
+
+            missingNewline = end == bytes.length;
+            offset = Math.min(end + 1, bytes.length);
+        }
+
+        try {
+            if (torn) {
+                LOGGER.warning("Dropping truncated journal tail in " + path.getFileName()
+                        + " after " + applied + " records (" + (bytes.length - offset) + " bytes)");
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(offset);
+                    channel.force(false);
+                }
+            } else if (missingNewline) {
+                // Complete record whose newline was lost: terminate it before appending more
+                append("\n", 0);
+            }
+        } catch (IOException e) {
+            LOGGER.severe("Error repairing journal " + path.getFileName() + ": " + e.getMessage());
+        }
+
+        pendingRecords = applied;
+        return applied;
+    }
+
+    private void apply(EntityStore<T> store, JsonObject record) {
+        String op = record.getString("op");
+        Long id = record.getJsonNumber("id").longValue();
+        highestReplayedId = Math.max(highestReplayedId, id);
+        if (OP_PUT.equals(op)) {
+            store.put(jsonb.fromJson(record.getJsonObject("entity").toString(), type));
+        } else if (OP_PATCH.equals(op)) {
+            T current = store.get(id);
+            if (current != null) {
+                store.put(MergePatch.apply(jsonb, type, current, record.getJsonObject("patch")));
+            }
+        } else if (OP_DELETE.equals(op)) {
+            store.remove(id);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.JsonObject;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * On-disk backend for one entity type.
+ * The resident EntityStore is always the source of truth for reads; a
+ * storage only has to fill it at startup and record each mutation.
+ * Callers hold the write lock of the type around every mutating call.
+ */
+interface EntityStorage<T> {
+
+    /**
+     * Populate the store from disk
+     */
+    void load(EntityStore<T> store);
+
+    /**
+     * Highest id the storage has seen, deleted entities included
+     */
+    long highestId();
+
+    /**
+     * Record an insert or replacement already applied to the store
+     */
+    void put(EntityStore<T> store, T entity) throws IOException;
+
+    /**
+     * Record a partial update already applied to the store: {@code delta}
+     * is the JSON Merge Patch that produced the stored entity. Storages
+     * without a delta format write the whole entity.
+     */
+    default void patch(EntityStore<T> store, Long id, JsonObject delta) throws IOException {
+        put(store, store.get(id));
+    }
+
+    /**
+     * Record several partial updates, one combined delta per id; by default
+     * the current entities are written as one batch
+     */
+    default void patchAll(EntityStore<T> store, Map<Long, JsonObject> deltas) throws IOException {
+        Map<Long, T> changes = new LinkedHashMap<>();
+        deltas.keySet().forEach(id -> changes.put(id, store.get(id)));
+        putAll(store, changes);
+    }
+
+    /**
+     * Record a removal already applied to the store
+     */
+    void delete(EntityStore<T> store, Long id) throws IOException;
+
+    /**
+     * Record a batch of coalesced mutations, latest state per id; a null
+     * value stands for a deletion. Storages override this to pay the
+     * flush cost once per batch.
+     */
+    default void putAll(EntityStore<T> store, Map<Long, T> changes) throws IOException {
+        for (Map.Entry<Long, T> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                put(store, change.getValue());
+            } else {
+                delete(store, change.getKey());
+            }
+        }
+    }
+
+    /**
+     * Persist the complete content of the store
+     */
+    void writeAll(EntityStore<T> store) throws IOException;
+
+    default void close() {
+    }
+}
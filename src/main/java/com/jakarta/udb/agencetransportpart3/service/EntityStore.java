@@ -0,0 +1,194 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resident, id-keyed copy of one entity type.
+ * Entities are copied on the way in and on the way out so callers can
+ * mutate what they get back without touching the stored state.
+ */
+class EntityStore<T> {
+
+    private final Class<T> type;
+    private final Function<T, Long> idGetter;
+    private final UnaryOperator<T> copier;
+
+    // Sorted by id so iteration keeps the historical file order
+    private final ConcurrentNavigableMap<Long, T> entities = new ConcurrentSkipListMap<>();
+
+    private final List<EntityIndex<T, ?>> indexes = new CopyOnWriteArrayList<>();
+
+    EntityStore(Class<T> type, Function<T, Long> idGetter, UnaryOperator<T> copier) {
+        this.type = type;
+        this.idGetter = idGetter;
+        this.copier = copier;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    Long idOf(T entity) {
+        return idGetter.apply(entity);
+    }
+
+    T get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        T entity = entities.get(id);
+        return entity == null ? null : copier.apply(entity);
+    }
+
+    boolean contains(Long id) {
+        return id != null && entities.containsKey(id);
+    }
+
+    /**
+     * Copies of the entities with the given ids, skipping unknown ones
+     */
+    List<T> getAll(Collection<Long> ids) {
+        return ids.stream()
+                .map(entities::get)
+                .filter(entity -> entity != null)
+                .map(copier)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Up to {@code limit} entities with an id greater than {@code after}
+     * that match the predicate, in id order; only the page is copied
+     */
+    List<T> page(Long after, int limit, Predicate<? super T> predicate) {
+        Collection<T> tail = after == null ? entities.values() : entities.tailMap(after, false).values();
+        return tail.stream()
+                .filter(predicate)
+                .limit(limit)
+                .map(copier)
+                .collect(Collectors.toList());
+    }
+
+    List<T> values() {
+        return entities.values().stream()
+                .map(copier)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Lazily copied, weakly consistent view: safe to consume without a lock
+     */
+    Stream<T> stream() {
+        return entities.values().stream().map(copier);
+    }
+
+    List<T> filter(Predicate<? super T> predicate) {
+        return entities.values().stream()
+                .filter(predicate)
+                .map(copier)
+                .collect(Collectors.toList());
+    }
+
+    long count(Predicate<? super T> predicate) {
+        return entities.values().stream()
+                .filter(predicate)
+                .count();
+    }
+
+    /**
+     * Count the entities with the given ids matching the predicate, without copying
+     */
+    long count(Collection<Long> ids, Predicate<? super T> predicate) {
+        return ids.stream()
+                .map(entities::get)
+                .filter(entity -> entity != null && predicate.test(entity))
+                .count();
+    }
+
+    int size() {
+        return entities.size();
+    }
+
+    long highestId() {
+        return entities.isEmpty() ? 0L : entities.lastKey();
+    }
+
+    /**
+     * Insert or replace an entity
+     */
+    void put(T entity) {
+        Long id = idOf(entity);
+        T stored = copier.apply(entity);
+        reindex(id, entities.put(id, stored), stored);
+    }
+
+    /**
+     * Replace an entity only if one with the same id is already stored
+     */
+    boolean replace(T entity) {
+        Long id = idOf(entity);
+        T stored = copier.apply(entity);
+        T previous = entities.replace(id, stored);
+        if (previous == null) {
+            return false;
+        }
+        reindex(id, previous, stored);
+        return true;
+    }
+
+    boolean remove(Long id) {
+        T previous = id == null ? null : entities.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        reindex(id, previous, null);
+        return true;
+    }
+
+    void clear() {
+        entities.clear();
+        indexes.forEach(EntityIndex::clear);
+    }
+
+    void replaceAll(Collection<T> all) {
+        clear();
+        for (T entity : all) {
+            if (idOf(entity) != null) {
+                put(entity);
+            }
+        }
+    }
+
+    // ==============================
+    // SECONDARY INDEXES
+    // ==============================
+
+    /**
+     * Attach an index and fill it from the current content
+     */
+    void addIndex(EntityIndex<T, ?> index) {
+        entities.forEach((id, entity) -> index.update(id, null, entity));
+        indexes.add(index);
+    }
+
+    private void reindex(Long id, T previous, T current) {
+        for (EntityIndex<T, ?> index : indexes) {
+            index.update(id, previous, current);
+        }
+    }
+
+    /**
+     * Live view used for serialization; must not be handed to callers
+     */
+    Collection<T> snapshotView() {
+        return entities.values();
+    }
+}
@@ -0,0 +1,208 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.JsonObject;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Group commit in front of another storage. Mutations only mark their id
+ * as dirty; the first one of a burst schedules a flush after a short window,
+ * and that flush hands every dirty id to the delegate in one batch, so N
+ * updates of the same entity cost one disk write.
+ *
+ * The flush takes its cut of the store under the read lock of the type, so
+ * the batch is consistent, then releases it before any I/O: writers are
+ * only held up while the changed entities are copied. Flushes and full
+ * writes reach the delegate one at a time, in order. Callers that need
+ * durability wait on {@link #whenFlushed()} (JsonPersistenceService.write
+ * does so for every write).
+ *
+ * Ids touched only by partial updates keep their combined delta, so a
+ * journaled delegate still logs deltas rather than full entities.
+ */
+class GroupCommitStorage<T> implements EntityStorage<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitStorage.class.getName());
+
+    private final EntityStorage<T> delegate;
+    private final ScheduledExecutorService scheduler;
+    private final ReadWriteLock lock;
+    private final long windowMillis;
+    // Taken after the read lock and released after the I/O, never the other way round
+    private final Lock flushLock = new ReentrantLock();
+
+    private EntityStore<T> store;
+
+    // Guarded by this
+    private Set<Long> dirty = new LinkedHashSet<>();
+    private Map<Long, JsonObject> deltas = new LinkedHashMap<>();
+    // Batch still collecting mutations, and batch whose I/O is running;
+    // each is a completed future when there is none
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> writing = CompletableFuture.completedFuture(null);
+    private boolean scheduled;
+
+    GroupCommitStorage(EntityStorage<T> delegate, ScheduledExecutorService scheduler,
+            ReadWriteLock lock, long windowMillis) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.lock = lock;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public void load(EntityStore<T> store) {
+        this.store = store;
+        delegate.load(store);
+    }
+
+    @Override
+    public long highestId() {
+        return delegate.highestId();
+    }
+
+    @Override
+    public synchronized void put(EntityStore<T> store, T entity) {
+        Long id = store.idOf(entity);
+        deltas.remove(id);
+        markDirty(id);
+    }
+
+    @Override
+    public synchronized void patch(EntityStore<T> store, Long id, JsonObject delta) {
+        // An id already dirty through a full write stays a full write
+        if (!dirty.contains(id) || deltas.containsKey(id)) {
+            deltas.merge(id, delta, MergePatch::combine);
+        }
+        markDirty(id);
+    }
+
+    @Override
+    public synchronized void delete(EntityStore<T> store, Long id) {
+        deltas.remove(id);
+        markDirty(id);
+    }
+
+    @Override
+    public void writeAll(EntityStore<T> store) throws IOException {
+        flushLock.lock();
+        try {
+            // Everything dirty is covered by the full write
+            CompletableFuture<Void> batch;
+            synchronized (this) {
+                dirty.clear();
+                deltas.clear();
+                batch = pending;
+                pending = CompletableFuture.completedFuture(null);
+                writing = batch;
+            }
+            try {
+                delegate.writeAll(store);
+                batch.complete(null);
+            } catch (IOException e) {
+                batch.completeExceptionally(e);
+                throw e;
+            } finally {
+                written();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Completes once every mutation made so far is on disk, including those
+     * of a batch already cut and being written
+     */
+    synchronized CompletableFuture<Void> whenFlushed() {
+        return CompletableFuture.allOf(writing, pending);
+    }
+
+    private synchronized void written() {
+        writing = CompletableFuture.completedFuture(null);
+    }
+
+    private synchronized void markDirty(Long id) {
+        dirty.add(id);
+        // Done means no batch is collecting yet: start one
+        if (pending.isDone()) {
+            pending = new CompletableFuture<>();
+        }
+        if (!scheduled) {
+            scheduled = true;
+            scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write every dirty id in one batch
+     */
+    void flush() {
+        Set<Long> ids;
+        Map<Long, JsonObject> patches;
+        CompletableFuture<Void> batch;
+        Map<Long, T> changes = new LinkedHashMap<>();
+        lock.readLock().lock();
+        flushLock.lock();
+        try {
+            try {
+                synchronized (this) {
+                    scheduled = false;
+                    ids = dirty;
+                    patches = deltas;
+                    batch = pending;
+                    // Writes arriving during the I/O belong to the next batch
+                    pending = CompletableFuture.completedFuture(null);
+                    writing = batch;
+                    dirty = new LinkedHashSet<>();
+                    deltas = new LinkedHashMap<>();
+                }
+                // The store hands out copies, so they can be written once the lock is released
+                ids.stream()
+                        .filter(id -> !patches.containsKey(id))
+                        .forEach(id -> changes.put(id, store.get(id)));
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (ids.isEmpty()) {
+                batch.complete(null);
+                return;
+            }
+            try {
+                if (!changes.isEmpty()) {
+                    delegate.putAll(store, changes);
+                }
+                if (!patches.isEmpty()) {
+                    delegate.patchAll(store, patches);
+                }
+                batch.complete(null);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Group commit of " + ids.size() + " "
+                        + store.getType().getSimpleName() + " failed", e);
+                batch.completeExceptionally(e);
+            }
+        } finally {
+            written();
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        delegate.close();
+    }
+}
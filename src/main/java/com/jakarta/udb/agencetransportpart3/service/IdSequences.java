@@ -0,0 +1,96 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-entity id sequences.
+ * Allocation is a single atomic increment; the high-water marks are saved
+ * to "sequences.properties" alongside the snapshots so ids of deleted
+ * entities are never handed out again after a restart.
+ */
+class IdSequences {
+
+    private static final Logger LOGGER = Logger.getLogger(IdSequences.class.getName());
+
+    private final Path file;
+    private final Map<Class<?>, AtomicLong> sequences = new ConcurrentHashMap<>();
+    private final Properties persisted = new Properties();
+
+    IdSequences(Path file) {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                persisted.load(input);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot read " + file.getFileName() + ", reseeding from data", e);
+            }
+        }
+    }
+
+    /**
+     * Start a sequence at the highest of its saved value and the highest
+     * id found in the loaded data
+     */
+    void seed(Class<?> clazz, long highestId) {
+        long saved = 0L;
+        try {
+            saved = Long.parseLong(persisted.getProperty(clazz.getSimpleName(), "0"));
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid saved sequence for " + clazz.getSimpleName());
+        }
+        sequences.put(clazz, new AtomicLong(Math.max(saved, highestId)));
+    }
+
+    long next(Class<?> clazz) {
+        return sequence(clazz).incrementAndGet();
+    }
+
+    /**
+     * Keep the sequence ahead of an id that was assigned elsewhere
+     */
+    void observe(Class<?> clazz, Long id) {
+        if (id != null) {
+            sequence(clazz).accumulateAndGet(id, Math::max);
+        }
+    }
+
+    private AtomicLong sequence(Class<?> clazz) {
+        AtomicLong sequence = sequences.get(clazz);
+        if (sequence == null) {
+            throw new IllegalArgumentException("No sequence for " + clazz.getName());
+        }
+        return sequence;
+    }
+
+    /**
+     * Write the current high-water marks: temp file, fsync, atomic rename,
+     * fsync of the directory, so a crash cannot bring back older marks
+     */
+    synchronized void save() {
+        Properties values = new Properties();
+        sequences.forEach((clazz, sequence) -> values.setProperty(clazz.getSimpleName(), String.valueOf(sequence.get())));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream output = new FileOutputStream(temp.toFile())) {
+                values.store(output, "Last allocated id per entity");
+                output.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            DurableFiles.syncDirectory(file.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Cannot save id sequences", e);
+        }
+    }
+}
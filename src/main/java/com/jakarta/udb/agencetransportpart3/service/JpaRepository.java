@@ -0,0 +1,76 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPA access to the entities mapped in persistence.xml, used by JpaStorage
+ * when persistence.engine=jpa. Every method runs in its own JTA transaction.
+ * Ids are assigned by the application (see JsonPersistenceService.nextId),
+ * so inserts and updates are both a merge.
+ * The bean is only created when that engine is selected, and the container
+ * deploys the persistence unit (and creates its tables) on first use, so it
+ * never reaches the database otherwise.
+ */
+@ApplicationScoped
+public class JpaRepository {
+
+    @PersistenceContext(unitName = "AgenceTransportPU")
+    private EntityManager em;
+
+    @Transactional
+    public <T> List<T> findAll(Class<T> clazz) {
+        return em.createNamedQuery(clazz.getSimpleName() + ".findAll", clazz).getResultList();
+    }
+
+    @Transactional
+    public long maxId(Class<?> clazz) {
+        Long max = em.createQuery("SELECT MAX(e.id) FROM " + clazz.getSimpleName() + " e", Long.class)
+                .getSingleResult();
+        return max != null ? max : 0L;
+    }
+
+    @Transactional
+    public <T> void merge(T entity) {
+        em.merge(entity);
+    }
+
+    @Transactional
+    public <T> void remove(Class<T> clazz, Long id) {
+        T entity = em.find(clazz, id);
+        if (entity != null) {
+            em.remove(entity);
+        }
+    }
+
+    /**
+     * Apply a batch of changes in one transaction; a null value is a deletion
+     */
+    @Transactional
+    public <T> void applyAll(Class<T> clazz, Map<Long, T> changes) {
+        changes.forEach((id, entity) -> {
+            if (entity != null) {
+                em.merge(entity);
+            } else {
+                remove(clazz, id);
+            }
+        });
+    }
+
+    /**
+     * Replace the whole table content in one transaction
+     */
+    @Transactional
+    public <T> void replaceAll(Class<T> clazz, Collection<T> entities) {
+        em.createQuery("DELETE FROM " + clazz.getSimpleName() + " e").executeUpdate();
+        for (T entity : entities) {
+            em.merge(entity);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Relational storage through JPA and the pooled application datasource.
+ * The table is read once at startup; each mutation is then written through
+ * in its own transaction. On first start (empty table) the JSON data is
+ * imported, as for the binary engine.
+ */
+class JpaStorage<T> implements EntityStorage<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(JpaStorage.class.getName());
+
+    private final Class<T> type;
+    private final JpaRepository repository;
+    private final EntityStorage<T> jsonSource;
+
+    private long importedHighestId;
+
+    JpaStorage(Class<T> type, JpaRepository repository, EntityStorage<T> jsonSource) {
+        this.type = type;
+        this.repository = repository;
+        this.jsonSource = jsonSource;
+    }
+
+    @Override
+    public void load(EntityStore<T> store) {
+        List<T> rows = repository.findAll(type);
+        if (rows.isEmpty()) {
+            importJson(store);
+            return;
+        }
+        rows.forEach(store::put);
+    }
+
+    /**
+     * Load the JSON snapshot and journal, then write them in one transaction.
+     * An interrupted import leaves the table empty, so it runs again on the
+     * next start.
+     */
+    private void importJson(EntityStore<T> store) {
+        jsonSource.load(store);
+        importedHighestId = jsonSource.highestId();
+        if (store.size() == 0) {
+            return;
+        }
+        try {
+            repository.replaceAll(type, store.values());
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cannot import " + type.getSimpleName() + " from JSON", e);
+        }
+        LOGGER.info("Imported " + store.size() + " " + type.getSimpleName() + " from JSON into the database");
+    }
+
+    @Override
+    public long highestId() {
+        return Math.max(repository.maxId(type), importedHighestId);
+    }
+
+    @Override
+    public void put(EntityStore<T> store, T entity) throws IOException {
+        try {
+            repository.merge(entity);
+        } catch (RuntimeException e) {
+            throw new IOException("Cannot write " + type.getSimpleName() + " " + store.idOf(entity), e);
+        }
+    }
+
+    @Override
+    public void delete(EntityStore<T> store, Long id) throws IOException {
+        try {
+            repository.remove(type, id);
+        } catch (RuntimeException e) {
+            throw new IOException("Cannot delete " + type.getSimpleName() + " " + id, e);
+        }
+    }
+
+    @Override
+    public void putAll(EntityStore<T> store, Map<Long, T> changes) throws IOException {
+        try {
+            repository.applyAll(type, changes);
+        } catch (RuntimeException e) {
+            throw new IOException("Cannot write " + changes.size() + " " + type.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public void writeAll(EntityStore<T> store) throws IOException {
+        try {
+            repository.replaceAll(type, store.values());
+        } catch (RuntimeException e) {
+            throw new IOException("Cannot write " + type.getSimpleName() + " table", e);
+        }
+    }
+}
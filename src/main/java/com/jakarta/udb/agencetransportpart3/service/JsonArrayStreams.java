@@ -0,0 +1,116 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.Json;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParsingException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Element-by-element reading and writing of JSON arrays of entities, so
+ * large files never have to be held in memory as one string.
+ */
+final class JsonArrayStreams {
+
+    private JsonArrayStreams() {
+    }
+
+    /**
+     * Lazily parse a JSON array of objects. Closing the stream closes the
+     * reader. A malformed or truncated document surfaces as a
+     * JsonParsingException while the stream is consumed.
+     */
+    static <T> Stream<T> read(Reader reader, Class<T> type, Jsonb jsonb) {
+        JsonParser parser = Json.createParser(reader);
+        ElementIterator<T> iterator = new ElementIterator<>(parser, type, jsonb);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(parser::close);
+    }
+
+    /**
+     * Write entities as a JSON array, serializing one element at a time
+     */
+    static <T> void write(Writer writer, Iterator<T> entities, Jsonb jsonb) throws IOException {
+        writer.write('[');
+        boolean first = true;
+        while (entities.hasNext()) {
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write(jsonb.toJson(entities.next()));
+            first = false;
+        }
+        writer.write(']');
+    }
+
+    private static final class ElementIterator<T> implements Iterator<T> {
+
+        private final JsonParser parser;
+        private final Class<T> type;
+        private final Jsonb jsonb;
+
+        private boolean started;
+        private boolean finished;
+        private T next;
+
+        ElementIterator(JsonParser parser, Class<T> type, Jsonb jsonb) {
+            this.parser = parser;
+            this.type = type;
+            this.jsonb = jsonb;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T element = next;
+            next = null;
+            return element;
+        }
+
+        private void advance() {
+            if (!started) {
+                started = true;
+                if (!parser.hasNext()) {
+                    // Empty document
+                    finished = true;
+                    return;
+                }
+                if (parser.next() != JsonParser.Event.START_ARRAY) {
+                    throw new JsonParsingException("Expected a JSON array", parser.getLocation());
+                }
+            }
+
+            if (!parser.hasNext()) {
+                throw new JsonParsingException("Unterminated JSON array", parser.getLocation());
+            }
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_ARRAY) {
+                finished = true;
+            } else if (event == JsonParser.Event.START_OBJECT) {
+                next = jsonb.fromJson(parser.getObject().toString(), type);
+            } else {
+                throw new JsonParsingException("Expected a JSON object, got " + event, parser.getLocation());
+            }
+        }
+    }
+}
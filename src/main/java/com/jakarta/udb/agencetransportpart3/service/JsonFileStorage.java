@@ -0,0 +1,172 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.JsonObject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JSON snapshot storage, optionally fronted by an append-only journal.
+ * In snapshot mode every mutation rewrites the snapshot; in journal mode
+ * mutations are appended to the journal, which is compacted into the
+ * snapshot every N records. Startup loads the snapshot then replays the
+ * journal.
+ */
+class JsonFileStorage<T> implements EntityStorage<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(JsonFileStorage.class.getName());
+
+    private final SnapshotFile<T> snapshot;
+    private final EntityJournal<T> journal;
+    private final IdSequences sequences;
+    private final boolean journaled;
+    private final int compactionThreshold;
+
+    JsonFileStorage(SnapshotFile<T> snapshot, EntityJournal<T> journal, IdSequences sequences,
+            boolean journaled, int compactionThreshold) {
+        this.snapshot = snapshot;
+        this.journal = journal;
+        this.sequences = sequences;
+        this.journaled = journaled;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public void load(EntityStore<T> store) {
+        snapshot.load(store);
+
+        // Always replay a leftover journal, even in snapshot mode, so switching
+        // modes never drops mutations that were not compacted yet
+        int replayed = journal.replay(store);
+        if (replayed > 0) {
+            LOGGER.info("Replayed " + replayed + " journal records for " + store.getType().getSimpleName());
+        }
+        if (replayed > 0 && (!journaled || replayed >= compactionThreshold)) {
+            compact(store);
+        }
+    }
+
+    @Override
+    public long highestId() {
+        return journal.getHighestReplayedId();
+    }
+
+    @Override
+    public void put(EntityStore<T> store, T entity) throws IOException {
+        if (!journaled) {
+            writeSnapshot(store);
+            return;
+        }
+        try {
+            journal.appendPut(store.idOf(entity), entity);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Journal append failed for " + store.getType().getSimpleName()
+                    + ", writing snapshot instead", e);
+            writeAll(store);
+            return;
+        }
+        compactIfNeeded(store);
+    }
+
+    @Override
+    public void patch(EntityStore<T> store, Long id, JsonObject delta) throws IOException {
+        if (!journaled) {
+            writeSnapshot(store);
+            return;
+        }
+        try {
+            journal.appendPatch(id, delta);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Journal append failed for " + store.getType().getSimpleName()
+                    + ", writing snapshot instead", e);
+            writeAll(store);
+            return;
+        }
+        compactIfNeeded(store);
+    }
+
+    @Override
+    public void patchAll(EntityStore<T> store, Map<Long, JsonObject> deltas) throws IOException {
+        if (!journaled) {
+            writeSnapshot(store);
+            return;
+        }
+        try {
+            journal.appendPatches(deltas);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Journal append failed for " + store.getType().getSimpleName()
+                    + ", writing snapshot instead", e);
+            writeAll(store);
+            return;
+        }
+        compactIfNeeded(store);
+    }
+
+    @Override
+    public void delete(EntityStore<T> store, Long id) throws IOException {
+        if (!journaled) {
+            writeSnapshot(store);
+            return;
+        }
+        try {
+            journal.appendDelete(id);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Journal append failed for " + store.getType().getSimpleName()
+                    + ", writing snapshot instead", e);
+            writeAll(store);
+            return;
+        }
+        compactIfNeeded(store);
+    }
+
+    @Override
+    public void putAll(EntityStore<T> store, Map<Long, T> changes) throws IOException {
+        if (!journaled) {
+            writeSnapshot(store);
+            return;
+        }
+        try {
+            journal.appendAll(changes);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Journal append failed for " + store.getType().getSimpleName()
+                    + ", writing snapshot instead", e);
+            writeAll(store);
+            return;
+        }
+        compactIfNeeded(store);
+    }
+
+    @Override
+    public void writeAll(EntityStore<T> store) throws IOException {
+        writeSnapshot(store);
+        journal.truncate();
+    }
+
+    private void compactIfNeeded(EntityStore<T> store) {
+        if (journal.getPendingRecords() >= compactionThreshold) {
+            compact(store);
+        }
+    }
+
+    /**
+     * Write the full snapshot, then drop the journal records it now contains.
+     * A crash between the two steps only means some records are replayed
+     * twice, which is harmless since PUT, PATCH and DELETE are idempotent.
+     */
+    private void compact(EntityStore<T> store) {
+        try {
+            writeAll(store);
+            LOGGER.fine("Compacted journal for " + store.getType().getSimpleName());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Cannot compact journal for " + store.getType().getSimpleName(), e);
+        }
+    }
+
+    private void writeSnapshot(EntityStore<T> store) throws IOException {
+        // Sequences first: a crash after this point cannot make a deleted id reusable
+        sequences.save();
+        snapshot.write(store.snapshotView());
+    }
+}
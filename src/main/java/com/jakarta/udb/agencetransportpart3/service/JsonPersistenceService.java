@@ -1,31 +1,138 @@
 package com.jakarta.udb.agencetransportpart3.service;
 
+import com.jakarta.udb.agencetransportpart3.config.ServiceConfig;
+import com.jakarta.udb.agencetransportpart3.entity.Bus;
+import com.jakarta.udb.agencetransportpart3.entity.Reservation;
+import com.jakarta.udb.agencetransportpart3.entity.Trajet;
+import com.jakarta.udb.agencetransportpart3.entity.Versioned;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
+import jakarta.persistence.Entity;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Persistence with a resident, write-through entity store.
+ * Each registered entity type is read from disk once at startup; reads are
+ * then served from memory and the disk is only touched on mutations.
+ *
+ * The on-disk format is pluggable per type (see EntityStorage):
+ * - "json" engine: JSON snapshots, written atomically, optionally fronted
+ *   by an append-only journal ("persistence.mode=journal");
+ * - "binary" engine: memory-mapped binary records written copy-on-update,
+ *   for Trajet and Reservation. The JSON data is imported on first start;
+ * - "jpa" engine: the JPA entities (Trajet, Reservation) are stored in the
+ *   pooled application datasource, see JpaRepository. The JSON data is
+ *   imported into an empty table on first start.
+ * With "persistence.group-commit.window.ms" above 0, mutations arriving
+ * within that window are flushed as one batch (see GroupCommitStorage);
+ * each write still returns only once its batch is on disk.
+ * Types without a binary codec or JPA mapping always use JSON storage.
+ *
+ * Ids are allocated from per-type atomic sequences ({@link #nextId(Class)})
+ * that are seeded from the data on startup and saved with each snapshot.
+ *
+ * Every entity type has its own read/write lock: reads of a type run in
+ * parallel, writes of a type are serialized. Services wrap their
+ * read-modify-write sequences in {@link #write(Class, Supplier)} so that
+ * two requests cannot both read the same state and overwrite each other.
+ */
 @ApplicationScoped
 public class JsonPersistenceService {
 
     private static final Logger LOGGER = Logger.getLogger(JsonPersistenceService.class.getName());
 
-    private static final String DATA_DIR = System.getProperty("user.home") + File.separator + "AgenceTransport_data";
+    static final String DATA_DIR = System.getProperty("user.home") + File.separator + "AgenceTransport_data";
 
     private final Jsonb jsonb = JsonbBuilder.create();
 
+    private final Map<Class<?>, EntityStore<?>> stores = new ConcurrentHashMap<>();
+    private final Map<Class<?>, EntityStorage<?>> storages = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    @Inject
+    private ServiceConfig serviceConfig;
+
+    // Only resolved with the jpa engine, so the persistence unit stays unused otherwise
+    @Inject
+    private Instance<JpaRepository> jpaRepositories;
+
+    @Inject
+    private ChangeFeed changeFeed;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private IdSequences sequences;
+
+    private boolean journaled;
+    private int compactionThreshold;
+    private String engine;
+    private long groupCommitWindow;
+    private JpaRepository jpaRepository;
+
     public JsonPersistenceService() {
         createDataDirectory();
     }
 
+    @PostConstruct
+    public void init() {
+        journaled = "journal".equalsIgnoreCase(serviceConfig.getPersistenceMode());
+        compactionThreshold = serviceConfig.getJournalCompactionThreshold();
+        engine = serviceConfig.getPersistenceEngine().toLowerCase();
+        groupCommitWindow = serviceConfig.getGroupCommitWindowMillis();
+        LOGGER.info("Persistence engine: " + engine + ", JSON mode: " + (journaled ? "journal" : "snapshot")
+                + (groupCommitWindow > 0 ? ", group commit window: " + groupCommitWindow + " ms" : ""));
+        sequences = new IdSequences(Path.of(DATA_DIR, "sequences.properties"));
+        if ("jpa".equals(engine)) {
+            jpaRepository = jpaRepositories.get();
+        }
+
+        register(Trajet.class, Trajet::getId, Trajet::new, new TrajetCodec());
+        register(Reservation.class, Reservation::getId, Reservation::new, new ReservationCodec());
+        register(Bus.class, Bus::getId, Bus::new, null);
+    }
+
+    @PreDestroy
+    public void close() {
+        sequences.save();
+        storages.values().forEach(EntityStorage::close);
+    }
+
     private void createDataDirectory() {
         try {
             Path path = Path.of(DATA_DIR);
@@ -37,46 +144,540 @@ public class JsonPersistenceService {
         }
     }
 
+    /**
+     * Register an entity type and load it into memory.
+     * The configured engine is used when the type supports it, JSON otherwise.
+     */
+    private <T> void register(Class<T> clazz, Function<T, Long> idGetter, UnaryOperator<T> copier,
+            BinaryCodec<T> codec) {
+        EntityStore<T> store = new EntityStore<>(clazz, idGetter, copier);
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        SnapshotFile<T> snapshot = new SnapshotFile<>(getFile(clazz).toPath(), clazz, jsonb);
+
+        EntityJournal<T> journal = new EntityJournal<>(getJournalFile(clazz).toPath(), clazz, jsonb);
+        EntityStorage<T> jsonStorage = new JsonFileStorage<>(snapshot, journal, sequences, journaled,
+                compactionThreshold);
+
+        EntityStorage<T> storage;
+        if ("binary".equals(engine) && codec != null) {
+            storage = new MappedBinaryStorage<>(getBinaryFile(clazz).toPath(), codec, jsonStorage);
+        } else if ("jpa".equals(engine) && clazz.isAnnotationPresent(Entity.class)) {
+            storage = new JpaStorage<>(clazz, jpaRepository, jsonStorage);
+        } else {
+            storage = jsonStorage;
+        }
+        if (groupCommitWindow > 0) {
+            storage = new GroupCommitStorage<>(storage, scheduler, lock, groupCommitWindow);
+        }
+        storage.load(store);
+        sequences.seed(clazz, Math.max(store.highestId(), storage.highestId()));
+
+        stores.put(clazz, store);
+        storages.put(clazz, storage);
+        locks.put(clazz, lock);
+        LOGGER.info("Loaded " + store.size() + " " + clazz.getSimpleName() + " into memory");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> EntityStore<T> store(Class<T> clazz) {
+        EntityStore<T> store = (EntityStore<T>) stores.get(clazz);
+        if (store == null) {
+            throw new IllegalArgumentException("Unregistered entity type: " + clazz.getName());
+        }
+        return store;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> EntityStorage<T> storage(Class<T> clazz) {
+        return (EntityStorage<T>) storages.get(clazz);
+    }
+
+    private ReentrantReadWriteLock lock(Class<?> clazz) {
+        ReentrantReadWriteLock lock = locks.get(clazz);
+        if (lock == null) {
+            throw new IllegalArgumentException("Unregistered entity type: " + clazz.getName());
+        }
+        return lock;
+    }
+
     private <T> File getFile(Class<T> clazz) {
         return new File(DATA_DIR,
                 clazz.getSimpleName().toLowerCase() + "s.json");
     }
 
-    // ✅ UNIQUE MÉTHODE DE LECTURE
-    public <T> List<T> loadAll(Class<T> clazz) {
-        File file = getFile(clazz);
+    private <T> File getJournalFile(Class<T> clazz) {
+        return new File(DATA_DIR,
+                clazz.getSimpleName().toLowerCase() + "s.journal");
+    }
+
+    private <T> File getBinaryFile(Class<T> clazz) {
+        return new File(DATA_DIR,
+                clazz.getSimpleName().toLowerCase() + "s.bin");
+    }
 
-        if (!file.exists()) {
-            return new ArrayList<>();
+    // ==============================
+    // ID ALLOCATION
+    // ==============================
+
+    /**
+     * Allocate the next id of an entity type; lock-free and constant-time
+     */
+    public long nextId(Class<?> clazz) {
+        return sequences.next(clazz);
+    }
+
+    // ==============================
+    // DURABILITY
+    // ==============================
+
+    /**
+     * Completes once every mutation of the type made so far is on disk.
+     * Without group commit writes are synchronous and this is already done.
+     */
+    public CompletableFuture<Void> whenFlushed(Class<?> clazz) {
+        EntityStorage<?> storage = storages.get(clazz);
+        if (storage instanceof GroupCommitStorage) {
+            return ((GroupCommitStorage<?>) storage).whenFlushed();
         }
+        return CompletableFuture.completedFuture(null);
+    }
 
+    /**
+     * Wait for the group commit holding the caller's writes. A failed flush
+     * is rethrown: the change is in memory but not on disk, and the caller
+     * must not report it as saved.
+     */
+    private void awaitFlush(Class<?> clazz) {
         try {
-            String json = Files.readString(file.toPath());
-            if (json == null || json.isBlank()) {
-                return new ArrayList<>();
+            whenFlushed(clazz).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException("Group commit of " + clazz.getSimpleName() + " failed",
+                        (IOException) cause);
             }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        } catch (CancellationException e) {
+            throw new UncheckedIOException(new IOException("Group commit of " + clazz.getSimpleName()
+                    + " was cancelled", e));
+        }
+    }
 
-            @SuppressWarnings("unchecked")
-            T[] array = (T[]) jsonb.fromJson(
-                    json,
-                    java.lang.reflect.Array.newInstance(clazz, 0).getClass());
+    // ==============================
+    // LOCKING
+    // ==============================
 
-            return new ArrayList<>(List.of(array));
+    /**
+     * Run an action under the shared lock of an entity type
+     */
+    public <R> R read(Class<?> clazz, Supplier<R> action) {
+        ReadWriteLock lock = lock(clazz);
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error loading " + clazz.getSimpleName(), e);
-            return new ArrayList<>();
+    /**
+     * Run an action under the exclusive lock of an entity type.
+     * The lock is reentrant, and reads may be made while holding it, but
+     * a write must never be attempted from inside {@link #read}.
+     */
+    public <R> R write(Class<?> clazz, Supplier<R> action) {
+        ReentrantReadWriteLock lock = lock(clazz);
+        lock.writeLock().lock();
+        R result;
+        try {
+            result = action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // The outermost write returns once its group commit is on disk; the
+        // flush needs the read lock, so it cannot be awaited while holding it
+        if (!lock.isWriteLockedByCurrentThread()) {
+            awaitFlush(clazz);
         }
+        return result;
+    }
+
+    public void write(Class<?> clazz, Runnable action) {
+        write(clazz, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // ==============================
+    // READS (served from memory)
+    // ==============================
+
+    /**
+     * Get all entities of a type, ordered by id
+     */
+    public <T> List<T> loadAll(Class<T> clazz) {
+        return read(clazz, () -> store(clazz).values());
+    }
+
+    /**
+     * Scan all entities of a type without materializing a list.
+     * The stream is weakly consistent: it never blocks writers and may or
+     * may not reflect writes made while it is being consumed.
+     */
+    public <T> Stream<T> stream(Class<T> clazz) {
+        return store(clazz).stream();
+    }
+
+    public <T> T findById(Class<T> clazz, Long id) {
+        return read(clazz, () -> store(clazz).get(id));
+    }
+
+    public <T> List<T> find(Class<T> clazz, Predicate<? super T> predicate) {
+        return read(clazz, () -> store(clazz).filter(predicate));
+    }
+
+    public <T> long count(Class<T> clazz, Predicate<? super T> predicate) {
+        return read(clazz, () -> store(clazz).count(predicate));
+    }
+
+    public <T> long count(Class<T> clazz) {
+        return read(clazz, () -> (long) store(clazz).size());
+    }
+
+    /**
+     * Entities having the given key in a secondary index, ordered by id
+     */
+    public <T, K> List<T> findBy(EntityIndex<T, K> index, K key) {
+        Class<T> clazz = index.getType();
+        return read(clazz, () -> store(clazz).getAll(index.ids(key)));
+    }
+
+    /**
+     * Lazy, weakly consistent scan of the entities having a key in a
+     * secondary index, in id order (see {@link #stream(Class)})
+     */
+    public <T, K> Stream<T> streamBy(EntityIndex<T, K> index, K key) {
+        EntityStore<T> store = store(index.getType());
+        return index.ids(key).stream()
+                .map(store::get)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Keyset page: up to {@code limit} entities with an id greater than
+     * {@code after} (null for the first page), in id order
+     */
+    public <T> List<T> page(Class<T> clazz, Long after, int limit) {
+        return page(clazz, after, limit, entity -> true);
+    }
+
+    public <T> List<T> page(Class<T> clazz, Long after, int limit, Predicate<? super T> predicate) {
+        return read(clazz, () -> store(clazz).page(after, limit, predicate));
+    }
+
+    /**
+     * Keyset page over the entities having a key in a secondary index
+     */
+    public <T, K> List<T> pageBy(EntityIndex<T, K> index, K key, Long after, int limit) {
+        Class<T> clazz = index.getType();
+        NavigableSet<Long> ids = index.ids(key);
+        NavigableSet<Long> tail = after == null ? ids : ids.tailSet(after, false);
+        return read(clazz, () -> store(clazz).getAll(
+                tail.stream().limit(limit).collect(Collectors.toList())));
+    }
+
+    /**
+     * Entities whose key in a sorted index lies in [from, to], in key order
+     */
+    public <T, K extends Comparable<? super K>> List<T> findBetween(SortedEntityIndex<T, K> index, K from, K to) {
+        Class<T> clazz = index.getType();
+        return read(clazz, () -> store(clazz).getAll(index.idsBetween(from, to)));
+    }
+
+    /**
+     * Count the entities whose key in a sorted index lies in [from, to]
+     * and that match the predicate
+     */
+    public <T, K extends Comparable<? super K>> long countBetween(SortedEntityIndex<T, K> index, K from, K to,
+            Predicate<? super T> predicate) {
+        Class<T> clazz = index.getType();
+        return read(clazz, () -> store(clazz).count(index.idsBetween(from, to), predicate));
+    }
+
+    // ==============================
+    // SECONDARY INDEXES
+    // ==============================
+
+    /**
+     * Create a secondary index on a derived key of an entity type.
+     * It is filled from the current content then maintained on every write.
+     */
+    public <T, K> EntityIndex<T, K> createIndex(Class<T> clazz, Function<T, K> keyGetter) {
+        EntityIndex<T, K> index = new EntityIndex<>(clazz, keyGetter);
+        write(clazz, () -> store(clazz).addIndex(index));
+        return index;
+    }
+
+    /**
+     * Same as {@link #createIndex} but kept in key order for range queries
+     */
+    public <T, K extends Comparable<? super K>> SortedEntityIndex<T, K> createSortedIndex(Class<T> clazz,
+            Function<T, K> keyGetter) {
+        SortedEntityIndex<T, K> index = new SortedEntityIndex<>(clazz, keyGetter);
+        write(clazz, () -> store(clazz).addIndex(index));
+        return index;
+    }
+
+    // ==============================
+    // WRITES (memory, then disk)
+    // ==============================
+
+    /**
+     * Insert or replace an entity
+     */
+    public <T> void save(T entity, Class<T> clazz) {
+        write(clazz, () -> {
+            EntityStore<T> store = store(clazz);
+            sequences.observe(clazz, store.idOf(entity));
+            initVersion(entity);
+            boolean existed = store.contains(store.idOf(entity));
+            store.put(entity);
+            persistPut(store, entity);
+            publish(store, existed ? ChangeEvent.Type.UPDATED : ChangeEvent.Type.CREATED, store.idOf(entity));
+        });
+    }
+
+    /**
+     * Replace an existing entity; returns false if the id is unknown.
+     * For {@link Versioned} entities this is a compare-and-set: a non-null
+     * version must match the stored one or {@link VersionConflictException}
+     * is thrown; on success the version is incremented on both the stored
+     * copy and the given entity.
+     *
+     * A stale version is rejected under the shared lock, without queueing
+     * behind other writers. The set itself still runs under the type's
+     * write lock, which also orders the indexes, the change feed and the
+     * storage: updates of different entities of a type are serialized.
+     */
+    public <T> boolean update(T entity, Class<T> clazz) {
+        if (entity instanceof Versioned) {
+            EntityStore<T> store = store(clazz);
+            checkVersion(clazz, store.idOf(entity), ((Versioned) entity).getVersion());
+        }
+        return write(clazz, () -> {
+            EntityStore<T> store = store(clazz);
+            if (entity instanceof Versioned) {
+                T stored = store.get(store.idOf(entity));
+                if (stored == null) {
+                    return false;
+                }
+                Versioned versioned = (Versioned) entity;
+                long current = versionOf(stored);
+                Long expected = versioned.getVersion();
+                if (expected != null && expected != current) {
+                    throw new VersionConflictException(clazz.getSimpleName(), store.idOf(entity), expected, current);
+                }
+                versioned.setVersion(current + 1);
+            }
+            if (!store.replace(entity)) {
+                return false;
+            }
+            persistPut(store, entity);
+            publish(store, ChangeEvent.Type.UPDATED, store.idOf(entity));
+            return true;
+        });
+    }
+
+    /**
+     * Apply a JSON Merge Patch to a stored entity; returns the patched
+     * entity, or null if the id is unknown. "id" and "version" in the patch
+     * are ignored: {@code expectedVersion}, when not null, is checked
+     * against a {@link Versioned} entity as in {@link #update}. Only the
+     * delta reaches the storage, so a journal logs just the changed fields.
+     * A stale version fails fast, as in {@link #update}.
+     */
+    public <T> T patch(Class<T> clazz, Long id, JsonObject patch, Long expectedVersion) {
+        checkVersion(clazz, id, expectedVersion);
+        return write(clazz, () -> {
+            EntityStore<T> store = store(clazz);
+            T stored = store.get(id);
+            if (stored == null) {
+                return null;
+            }
+            JsonObjectBuilder delta = Json.createObjectBuilder(patch)
+                    .remove("id")
+                    .remove("version");
+            if (stored instanceof Versioned) {
+                long current = versionOf(stored);
+                if (expectedVersion != null && expectedVersion != current) {
+                    throw new VersionConflictException(clazz.getSimpleName(), id, expectedVersion, current);
+                }
+                delta.add("version", current + 1);
+            }
+            JsonObject changes = delta.build();
+            T patched = MergePatch.apply(jsonb, clazz, stored, changes);
+            store.replace(patched);
+            persistPatch(store, id, changes);
+            publish(store, ChangeEvent.Type.UPDATED, id);
+            return patched;
+        });
+    }
+
+    public <T> boolean delete(Class<T> clazz, Long id) {
+        return write(clazz, () -> {
+            EntityStore<T> store = store(clazz);
+            if (!store.remove(id)) {
+                return false;
+            }
+            persistDelete(store, id);
+            publish(store, ChangeEvent.Type.DELETED, id);
+            return true;
+        });
+    }
+
+    /**
+     * Insert or replace a batch of entities with a single storage write
+     */
+    public <T> void saveBatch(List<T> entities, Class<T> clazz) {
+        write(clazz, () -> {
+            EntityStore<T> store = store(clazz);
+            Map<Long, T> changes = new LinkedHashMap<>();
+            Map<Long, ChangeEvent.Type> types = new LinkedHashMap<>();
+            for (T entity : entities) {
+                Long id = store.idOf(entity);
+                sequences.observe(clazz, id);
+                initVersion(entity);
+                types.putIfAbsent(id, store.contains(id) ? ChangeEvent.Type.UPDATED : ChangeEvent.Type.CREATED);
+                store.put(entity);
+                changes.put(id, entity);
+            }
+            try {
+                storage(clazz).putAll(store, changes);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error saving " + changes.size() + " " + clazz.getSimpleName(), e);
+            }
+            types.forEach((id, type) -> publish(store, type, id));
+        });
+    }
+
+    /**
+     * Remove a batch of entities with a single storage write
+     */
+    public <T> void deleteBatch(Class<T> clazz, Collection<Long> ids) {
+        removeBatch(clazz, ids, ChangeEvent.Type.DELETED);
+    }
+
+    /**
+     * Remove a batch of entities that were just copied to the archive;
+     * same as deleteBatch but reported as ARCHIVED on the change feed
+     */
+    public <T> void removeArchived(Class<T> clazz, Collection<Long> ids) {
+        removeBatch(clazz, ids, ChangeEvent.Type.ARCHIVED);
+    }
+
+    private <T> void removeBatch(Class<T> clazz, Collection<Long> ids, ChangeEvent.Type type) {
+        write(clazz, () -> {
+            EntityStore<T> store = store(clazz);
+            Map<Long, T> changes = new LinkedHashMap<>();
+            for (Long id : ids) {
+                if (store.remove(id)) {
+                    changes.put(id, null);
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+            try {
+                storage(clazz).putAll(store, changes);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error deleting " + changes.size() + " " + clazz.getSimpleName(), e);
+            }
+            changes.keySet().forEach(id -> publish(store, type, id));
+        });
     }
 
     public <T> void saveAll(List<T> entities, Class<T> clazz) {
-        File file = getFile(clazz);
+        write(clazz, () -> {
+            EntityStore<T> store = store(clazz);
+            store.replaceAll(entities);
+            sequences.observe(clazz, store.highestId());
+            sequences.save();
+            try {
+                storage(clazz).writeAll(store);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error saving " + clazz.getSimpleName(), e);
+            }
+        });
+    }
+
+    /**
+     * Early compare under the shared lock: versions only grow, so a mismatch
+     * seen now is still one under the write lock, where the check is redone
+     */
+    private <T> void checkVersion(Class<T> clazz, Long id, Long expected) {
+        if (expected == null) {
+            return;
+        }
+        Long current = read(clazz, () -> {
+            T stored = store(clazz).get(id);
+            return stored instanceof Versioned ? versionOf(stored) : null;
+        });
+        if (current != null && expected != current.longValue()) {
+            throw new VersionConflictException(clazz.getSimpleName(), id, expected, current);
+        }
+    }
+
+    private static long versionOf(Object entity) {
+        Long version = ((Versioned) entity).getVersion();
+        return version == null ? 0L : version;
+    }
+
+    private static void initVersion(Object entity) {
+        if (entity instanceof Versioned && ((Versioned) entity).getVersion() == null) {
+            ((Versioned) entity).setVersion(0L);
+        }
+    }
+
+    /**
+     * Report a mutation to the change feed; called under the write lock so
+     * sequence order is commit order
+     */
+    private <T> void publish(EntityStore<T> store, ChangeEvent.Type type, Long id) {
+        if (changeFeed.tracks(store.getType())) {
+            boolean removed = type == ChangeEvent.Type.DELETED || type == ChangeEvent.Type.ARCHIVED;
+            changeFeed.publish(type, store.getType(), id, removed ? null : store.get(id));
+        }
+    }
+
+    // ==============================
+    // STORAGE
+    // ==============================
+
+    private <T> void persistPut(EntityStore<T> store, T entity) {
+        try {
+            storage(store.getType()).put(store, entity);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error saving " + store.getType().getSimpleName() + " " + store.idOf(entity), e);
+        }
+    }
+
+    private <T> void persistPatch(EntityStore<T> store, Long id, JsonObject delta) {
+        try {
+            storage(store.getType()).patch(store, id, delta);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error saving " + store.getType().getSimpleName() + " " + id, e);
+        }
+    }
 
+    private <T> void persistDelete(EntityStore<T> store, Long id) {
         try {
-            String json = jsonb.toJson(entities);
-            Files.writeString(file.toPath(), json);
+            storage(store.getType()).delete(store, id);
         } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error saving " + clazz.getSimpleName(), e);
+            LOGGER.log(Level.SEVERE, "Error deleting " + store.getType().getSimpleName() + " " + id, e);
         }
     }
 }
@@ -0,0 +1,455 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped binary storage for one entity type.
+ *
+ * File layout:
+ * <pre>
+ * header  : magic (int) | format version (int) | end of data (long)
+ * records : capacity (int) | length (int) | flags (byte) | id (long) | sequence (long) | crc (int)
+ *           | payload (capacity bytes)
+ * </pre>
+ * Records are never overwritten while live: an update writes a new copy,
+ * with a higher sequence, to a free slot or the end of the file, and the
+ * old copy is flagged deleted only once the new one is on disk. After a
+ * crash the copy with the highest sequence wins, and records whose CRC
+ * does not match (torn writes) are discarded. Deleted slots are reused by
+ * later writes of a fitting size. A mapping is limited to 2 GB.
+ *
+ * On first start the JSON data of the type (snapshot and journal) is
+ * imported once; from then on the binary file is the only copy.
+ */
+class MappedBinaryStorage<T> implements EntityStorage<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(MappedBinaryStorage.class.getName());
+
+    private static final int MAGIC = 0x41544231; // "ATB1"
+    private static final int FORMAT_VERSION = 2;
+    private static final int LEGACY_FORMAT_VERSION = 1;
+    private static final int FILE_HEADER = 16;
+    private static final int END_OFFSET = 8;
+
+    private static final int RECORD_HEADER = 29;
+    private static final int LEGACY_RECORD_HEADER = 17;
+    private static final int CAPACITY_OFFSET = 0;
+    private static final int LENGTH_OFFSET = 4;
+    private static final int FLAGS_OFFSET = 8;
+    private static final int ID_OFFSET = 9;
+    private static final int SEQUENCE_OFFSET = 17;
+    private static final int CRC_OFFSET = 25;
+
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    private final Path path;
+    private final BinaryCodec<T> codec;
+    private final EntityStorage<T> jsonSource;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long highestId;
+    private long lastSequence;
+
+    private final Map<Long, Integer> offsets = new HashMap<>();
+    // Deleted slots by capacity, for reuse
+    private final TreeMap<Integer, ArrayDeque<Integer>> freeSlots = new TreeMap<>();
+
+    MappedBinaryStorage(Path path, BinaryCodec<T> codec, EntityStorage<T> jsonSource) {
+        this.path = path;
+        this.codec = codec;
+        this.jsonSource = jsonSource;
+    }
+
+    @Override
+    public synchronized void load(EntityStore<T> store) {
+        Path legacy = path.resolveSibling(path.getFileName() + ".v1");
+        try {
+            if (Files.exists(legacy)) {
+                // Interrupted migration: start it over from the old file
+                Files.deleteIfExists(path);
+                migrate(store, legacy);
+                return;
+            }
+
+            int version = open();
+            if (version == 0) {
+                importJson(store);
+            } else if (version == LEGACY_FORMAT_VERSION) {
+                closeChannel();
+                Files.move(path, legacy, StandardCopyOption.ATOMIC_MOVE);
+                migrate(store, legacy);
+            } else {
+                scan(store);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open binary storage " + path.getFileName(), e);
+        }
+    }
+
+    /**
+     * Map the file; returns its format version, or 0 if it is new or its
+     * first import never completed
+     */
+    private int open() throws IOException {
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < FILE_HEADER;
+        map(Math.max(channel.size(), INITIAL_SIZE));
+
+        if (fresh || buffer.getInt(0) == 0) {
+            // The magic is written last, once the initial content is on disk
+            buffer.putInt(4, FORMAT_VERSION);
+            setEnd(FILE_HEADER);
+            return 0;
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary entity file: " + path.getFileName());
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION && version != LEGACY_FORMAT_VERSION) {
+            throw new IOException("Unsupported format version " + version + " in " + path.getFileName());
+        }
+        end = (int) buffer.getLong(END_OFFSET);
+        return version;
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Binary storage " + path.getFileName() + " exceeds 2 GB");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Import through the JSON storage so journal records not compacted yet
+     * are included
+     */
+    private void importJson(EntityStore<T> store) throws IOException {
+        jsonSource.load(store);
+        highestId = Math.max(highestId, jsonSource.highestId());
+        writeInitialContent(store);
+        if (store.size() > 0) {
+            LOGGER.info("Imported " + store.size() + " " + store.getType().getSimpleName()
+                    + " from JSON into " + path.getFileName());
+        }
+    }
+
+    /**
+     * Rewrite a format 1 file (records updated in place, no sequence or CRC)
+     * in the current format. The old file is kept until the new one is complete.
+     */
+    private void migrate(EntityStore<T> store, Path legacy) throws IOException {
+        try (FileChannel in = FileChannel.open(legacy, StandardOpenOption.READ)) {
+            MappedByteBuffer old = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            int oldEnd = (int) Math.min(old.getLong(END_OFFSET), in.size());
+            int offset = FILE_HEADER;
+            while (offset + LEGACY_RECORD_HEADER <= oldEnd) {
+                int capacity = old.getInt(offset + CAPACITY_OFFSET);
+                if (capacity <= 0) {
+                    break;
+                }
+                long id = old.getLong(offset + ID_OFFSET);
+                highestId = Math.max(highestId, id);
+                if (old.get(offset + FLAGS_OFFSET) == LIVE) {
+                    ByteBuffer view = old.duplicate();
+                    int start = offset + LEGACY_RECORD_HEADER;
+                    view.limit(Math.min(start + old.getInt(offset + LENGTH_OFFSET), oldEnd));
+                    view.position(start);
+                    try {
+                        store.put(codec.decode(id, view));
+                    } catch (RuntimeException e) {
+                        LOGGER.warning("Skipping unreadable record " + id + " in " + legacy.getFileName());
+                    }
+                }
+                offset += LEGACY_RECORD_HEADER + capacity;
+            }
+        }
+
+        open();
+        writeInitialContent(store);
+        Files.delete(legacy);
+        LOGGER.info("Migrated " + store.size() + " " + store.getType().getSimpleName()
+                + " to binary format " + FORMAT_VERSION + " in " + path.getFileName());
+    }
+
+    private void writeInitialContent(EntityStore<T> store) throws IOException {
+        for (T entity : store.snapshotView()) {
+            append(store.idOf(entity), codec.toBytes(entity));
+        }
+        buffer.force();
+        buffer.putInt(0, MAGIC);
+        buffer.force();
+    }
+
+    private void scan(EntityStore<T> store) {
+        int retired = 0;
+        int offset = FILE_HEADER;
+        while (offset + RECORD_HEADER <= end) {
+            int capacity = buffer.getInt(offset + CAPACITY_OFFSET);
+            if (capacity <= 0 || (long) offset + RECORD_HEADER + capacity > end) {
+                LOGGER.warning("Corrupt record header at " + offset + " in " + path.getFileName()
+                        + ", ignoring the rest of the file");
+                setEnd(offset);
+                break;
+            }
+            long id = buffer.getLong(offset + ID_OFFSET);
+            long sequence = buffer.getLong(offset + SEQUENCE_OFFSET);
+            highestId = Math.max(highestId, id);
+            lastSequence = Math.max(lastSequence, sequence);
+
+            if (buffer.get(offset + FLAGS_OFFSET) == LIVE) {
+                T entity = read(offset, id);
+                Integer other = offsets.get(id);
+                if (entity == null || (other != null && buffer.getLong(other + SEQUENCE_OFFSET) > sequence)) {
+                    // Torn record, or an older copy left by a crash during an update
+                    markDeleted(offset);
+                    retired++;
+                } else {
+                    if (other != null) {
+                        markDeleted(other);
+                        retired++;
+                    }
+                    store.put(entity);
+                    offsets.put(id, offset);
+                }
+            } else {
+                release(offset, capacity);
+            }
+            offset += RECORD_HEADER + capacity;
+        }
+
+        if (retired > 0) {
+            buffer.force();
+            LOGGER.warning("Discarded " + retired + " stale or torn records in " + path.getFileName());
+        }
+    }
+
+    /**
+     * Decode a live record, or null if it fails its CRC or cannot be decoded
+     */
+    private T read(int offset, long id) {
+        int length = buffer.getInt(offset + LENGTH_OFFSET);
+        if (length < 0 || length > buffer.getInt(offset + CAPACITY_OFFSET)) {
+            return null;
+        }
+        ByteBuffer payload = payload(offset, length);
+        long sequence = buffer.getLong(offset + SEQUENCE_OFFSET);
+        if (crc(id, sequence, payload.duplicate()) != buffer.getInt(offset + CRC_OFFSET)) {
+            LOGGER.warning("Torn record " + id + " in " + path.getFileName());
+            return null;
+        }
+        try {
+            return codec.decode(id, payload);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cannot decode record " + id + " in " + path.getFileName(), e);
+            return null;
+        }
+    }
+
+    private ByteBuffer payload(int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        int start = offset + RECORD_HEADER;
+        view.limit(start + length);
+        view.position(start);
+        return view;
+    }
+
+    private static int crc(long id, long sequence, ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(16).putLong(id).putLong(sequence).flip());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public synchronized long highestId() {
+        return highestId;
+    }
+
+    @Override
+    public synchronized void put(EntityStore<T> store, T entity) throws IOException {
+        Integer previous = write(store, entity);
+        buffer.force();
+        if (previous != null) {
+            // Durable on the next force; until then a restart keeps the newer copy
+            markDeleted(previous);
+        }
+    }
+
+    @Override
+    public synchronized void delete(EntityStore<T> store, Long id) throws IOException {
+        if (remove(id)) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void putAll(EntityStore<T> store, Map<Long, T> changes) throws IOException {
+        List<Integer> superseded = new ArrayList<>();
+        for (Map.Entry<Long, T> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                Integer previous = write(store, change.getValue());
+                if (previous != null) {
+                    superseded.add(previous);
+                }
+            }
+        }
+        buffer.force();
+
+        superseded.forEach(this::markDeleted);
+        boolean removed = false;
+        for (Map.Entry<Long, T> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                removed |= remove(change.getKey());
+            }
+        }
+        if (removed) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Write a new copy of the entity; returns the offset of the copy it
+     * supersedes, to be flagged deleted once the new one is on disk
+     */
+    private Integer write(EntityStore<T> store, T entity) throws IOException {
+        Long id = store.idOf(entity);
+        Integer previous = offsets.get(id);
+        append(id, codec.toBytes(entity));
+        highestId = Math.max(highestId, id);
+        return previous;
+    }
+
+    private boolean remove(Long id) {
+        Integer offset = offsets.remove(id);
+        if (offset == null) {
+            return false;
+        }
+        markDeleted(offset);
+        return true;
+    }
+
+    /**
+     * Replace the whole content: new copies of every entity are written
+     * first, the old records are dropped once those are on disk
+     */
+    @Override
+    public synchronized void writeAll(EntityStore<T> store) throws IOException {
+        List<Integer> previous = new ArrayList<>(offsets.values());
+        offsets.clear();
+        for (T entity : store.snapshotView()) {
+            append(store.idOf(entity), codec.toBytes(entity));
+        }
+        buffer.force();
+        previous.forEach(this::markDeleted);
+        buffer.force();
+    }
+
+    private void markDeleted(int offset) {
+        buffer.put(offset + FLAGS_OFFSET, DELETED);
+        release(offset, buffer.getInt(offset + CAPACITY_OFFSET));
+    }
+
+    private void release(int offset, int capacity) {
+        freeSlots.computeIfAbsent(capacity, c -> new ArrayDeque<>()).add(offset);
+    }
+
+    /**
+     * Store a record in a reusable deleted slot, or at the end of the file
+     */
+    private void append(Long id, byte[] bytes) throws IOException {
+        int offset;
+        int capacity;
+
+        Map.Entry<Integer, ArrayDeque<Integer>> slot = freeSlots.ceilingEntry(bytes.length);
+        if (slot != null && slot.getKey() <= Math.max(MIN_CAPACITY, bytes.length * 2)) {
+            capacity = slot.getKey();
+            offset = slot.getValue().poll();
+            if (slot.getValue().isEmpty()) {
+                freeSlots.remove(capacity);
+            }
+        } else {
+            capacity = Math.max(MIN_CAPACITY, bytes.length + bytes.length / 4);
+            offset = end;
+            ensureCapacity((long) end + RECORD_HEADER + capacity);
+            buffer.putInt(offset + CAPACITY_OFFSET, capacity);
+        }
+
+        long sequence = ++lastSequence;
+        buffer.putLong(offset + ID_OFFSET, id);
+        buffer.putLong(offset + SEQUENCE_OFFSET, sequence);
+        buffer.putInt(offset + CRC_OFFSET, crc(id, sequence, ByteBuffer.wrap(bytes)));
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + RECORD_HEADER);
+        view.put(bytes);
+        buffer.putInt(offset + LENGTH_OFFSET, bytes.length);
+        // Flag last so a half-written record is never seen as live
+        buffer.put(offset + FLAGS_OFFSET, LIVE);
+
+        if (offset == end) {
+            setEnd(end + RECORD_HEADER + capacity);
+        }
+        offsets.put(id, offset);
+    }
+
+    private void ensureCapacity(long required) throws IOException {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        long size = buffer.capacity();
+        while (size < required) {
+            size *= 2;
+        }
+        buffer.force();
+        map(Math.min(size, Integer.MAX_VALUE));
+        if (required > buffer.capacity()) {
+            throw new IOException("Binary storage " + path.getFileName() + " exceeds 2 GB");
+        }
+    }
+
+    private void setEnd(int newEnd) {
+        end = newEnd;
+        buffer.putLong(END_OFFSET, end);
+    }
+
+    private void closeChannel() throws IOException {
+        buffer.force();
+        channel.close();
+        channel = null;
+        buffer = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error closing " + path.getFileName(), e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+import jakarta.json.bind.Jsonb;
+
+import java.io.StringReader;
+
+/**
+ * JSON Merge Patch (RFC 7396) applied to entities through their JSON-B form.
+ * Applying the same patch twice gives the same result, so journal replay
+ * stays idempotent.
+ */
+final class MergePatch {
+
+    private MergePatch() {
+    }
+
+    static <T> T apply(Jsonb jsonb, Class<T> type, T target, JsonObject patch) {
+        JsonObject current;
+        try (JsonReader reader = Json.createReader(new StringReader(jsonb.toJson(target)))) {
+            current = reader.readObject();
+        }
+        JsonValue patched = Json.createMergePatch(patch).apply(current);
+        return jsonb.fromJson(patched.toString(), type);
+    }
+
+    /**
+     * A single patch equivalent to applying {@code first} then {@code second}.
+     * Entities are flat, so the later value of a field simply wins.
+     */
+    static JsonObject combine(JsonObject first, JsonObject second) {
+        JsonObjectBuilder combined = Json.createObjectBuilder(first);
+        second.forEach(combined::add);
+        return combined.build();
+    }
+}
@@ -7,10 +7,16 @@ import com.jakarta.udb.agencetransportpart3.integration.ChauffeurServiceClient;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for generating reports (JSON-based persistence)
@@ -41,23 +47,28 @@ public class ReportService {
 
         // Reservations
         Map<String, Long> reservationStats = new HashMap<>();
+        // Archived entities are counted from segment footers
         reservationStats.put("total",
-                (long) reservationService.findAll().size());
+                reservationService.getTotalReservationsCount()
+                        + reservationService.getArchivedReservationsCount(null));
         reservationStats.put("pending",
                 reservationService.getPendingReservationsCount());
         reservationStats.put("confirmed",
-                reservationService.getConfirmedReservationsCount());
+                reservationService.getConfirmedReservationsCount()
+                        + reservationService.getArchivedReservationsCount("CONFIRMED"));
 
         report.put("reservations", reservationStats);
 
         // Trajets
         Map<String, Long> trajetStats = new HashMap<>();
         trajetStats.put("total",
-                (long) trajetService.findAll().size());
+                trajetService.getTotalTrajetsCount()
+                        + trajetService.getArchivedTrajetsCount(null));
         trajetStats.put("planned",
                 trajetService.getPlannedTrajetsCount());
         trajetStats.put("completed",
-                trajetService.getCompletedTrajetsCount());
+                trajetService.getCompletedTrajetsCount()
+                        + trajetService.getArchivedTrajetsCount("COMPLETED"));
 
         report.put("trajets", trajetStats);
 
@@ -65,87 +76,260 @@ public class ReportService {
         return report;
     }
 
+    /**
+     * Summary restricted to departures in [from, to]. Archive segments
+     * outside the range are skipped and those fully inside it are counted
+     * from their footer.
+     */
+    public Map<String, Object> generateSummaryReport(LocalDateTime from, LocalDateTime to) {
+
+        Map<String, Object> report = new HashMap<>();
+
+        Map<String, Long> reservationStats = new HashMap<>();
+        reservationStats.put("total", reservationService.countByDepartureBetween(null, from, to));
+        reservationStats.put("pending", reservationService.countByDepartureBetween("PENDING", from, to));
+        reservationStats.put("confirmed", reservationService.countByDepartureBetween("CONFIRMED", from, to));
+        report.put("reservations", reservationStats);
+
+        Map<String, Long> trajetStats = new HashMap<>();
+        trajetStats.put("total", trajetService.countByDepartureBetween(null, from, to));
+        trajetStats.put("planned", trajetService.countByDepartureBetween("PLANNED", from, to));
+        trajetStats.put("completed", trajetService.countByDepartureBetween("COMPLETED", from, to));
+        report.put("trajets", trajetStats);
+
+        LOGGER.info("Summary report generated for " + from + " - " + to);
+        return report;
+    }
+
+    // ==============================
+    // DASHBOARD
+    // ==============================
+
+    /**
+     * Counters shown on the JSF pages, keyed by the name the pages use
+     * ("summary.*" as in the summary report, "trajets.*" live trajets only).
+     * Every value is an index or footer count, cheap enough to push after
+     * each change.
+     */
+    public Map<String, Long> generateDashboardCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long liveTrajets = trajetService.getTotalTrajetsCount();
+        long completedTrajets = trajetService.getCompletedTrajetsCount();
+
+        counts.put("summary.reservations.total", reservationService.getTotalReservationsCount()
+                + reservationService.getArchivedReservationsCount(null));
+        counts.put("summary.reservations.pending", reservationService.getPendingReservationsCount());
+        counts.put("summary.reservations.confirmed", reservationService.getConfirmedReservationsCount()
+                + reservationService.getArchivedReservationsCount("CONFIRMED"));
+        counts.put("summary.trajets.total", liveTrajets + trajetService.getArchivedTrajetsCount(null));
+        counts.put("summary.trajets.planned", trajetService.getPlannedTrajetsCount());
+        counts.put("summary.trajets.completed", completedTrajets
+                + trajetService.getArchivedTrajetsCount("COMPLETED"));
+
+        counts.put("trajets.total", liveTrajets);
+        counts.put("trajets.planned", trajetService.getPlannedTrajetsCount());
+        counts.put("trajets.inProgress", trajetService.getInProgressTrajetsCount());
+        counts.put("trajets.completed", completedTrajets);
+        return counts;
+    }
+
     // ==============================
     // REPORT BY BUS
     // ==============================
+
+    /**
+     * Report by bus over live trajets only; archived trajets are reached
+     * through the ranged variant, which reads just the months it covers
+     */
     public Map<String, List<Trajet>> generateReportByBus() {
         Map<String, List<Trajet>> report = new HashMap<>();
-        Map<Long, String> busNames = new HashMap<>();
+        Map<Long, String> busNames = resolveBusIdentifiers(trajetService.getAssignedBusIds());
+
+        for (Long busId : busNames.keySet()) {
+            report.computeIfAbsent(
+                    busNames.get(busId),
+                    k -> new java.util.ArrayList<>()).addAll(trajetService.findByBusId(busId));
+        }
+
+        LOGGER.info("Report by bus generated");
+        return report;
+    }
+
+    /**
+     * Report by bus restricted to trajets departing in [from, to]; archived
+     * trajets are included when the range reaches them
+     */
+    public Map<String, List<Trajet>> generateReportByBus(LocalDateTime from, LocalDateTime to) {
+        Map<String, List<Trajet>> report = new HashMap<>();
+        List<Trajet> trajets = trajetService.findByDepartureBetween(from, to);
+        Map<Long, String> busNames = resolveBusIdentifiers(trajets.stream()
+                .map(Trajet::getBusId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
 
-        for (Trajet trajet : trajetService.findAll()) {
+        for (Trajet trajet : trajets) {
             if (trajet.getBusId() != null) {
                 String busIdentifier = busNames.get(trajet.getBusId());
-                if (busIdentifier == null) {
-                    try {
-                        String details = busServiceClient.getBusDetails(trajet.getBusId());
-                        if (details != null && details.contains("\"number\":\"")) {
-                            busIdentifier = details.split("\"number\":\"")[1].split("\"")[0];
-                        } else {
-                            busIdentifier = "Bus #" + trajet.getBusId() + " (Indisponible)";
-                        }
-                    } catch (Exception e) {
-                        busIdentifier = "Bus #" + trajet.getBusId() + " (Indisponible)";
-                    }
-                    busNames.put(trajet.getBusId(), busIdentifier);
-                }
-
-                report.computeIfAbsent(
-                        busIdentifier,
-                        k -> new java.util.ArrayList<>()).add(trajet);
+                report.computeIfAbsent(busIdentifier, k -> new java.util.ArrayList<>()).add(trajet);
             }
         }
 
-        LOGGER.info("Report by bus generated");
+        LOGGER.info("Report by bus generated for " + from + " - " + to);
         return report;
     }
 
+    /**
+     * Report by bus as a lazy sequence of {"bus": ..., "trajets": [...]} rows,
+     * live trajets only
+     */
+    public Stream<Map<String, Object>> streamReportByBus() {
+        Map<Long, String> busNames = resolveBusIdentifiers(trajetService.getAssignedBusIds());
+        return busNames.keySet().stream()
+                .map(busId -> row("bus", busNames.get(busId),
+                        "trajets", trajetService.findByBusId(busId)));
+    }
+
+    /**
+     * Report by bus restricted to [from, to], as {"bus": ..., "trajets": [...]} rows
+     */
+    public Stream<Map<String, Object>> streamReportByBus(LocalDateTime from, LocalDateTime to) {
+        return generateReportByBus(from, to).entrySet().stream()
+                .map(entry -> row("bus", entry.getKey(), "trajets", entry.getValue()));
+    }
+
+    /**
+     * Display name of each bus, with the details fetched in one batch
+     */
+    private Map<Long, String> resolveBusIdentifiers(Collection<Long> busIds) {
+        Map<Long, String> details = busServiceClient.getBusDetails(busIds);
+        Map<Long, String> names = new LinkedHashMap<>();
+        busIds.forEach(busId -> names.put(busId, busIdentifier(busId, details.get(busId))));
+        return names;
+    }
+
+    private static String busIdentifier(Long busId, String details) {
+        if (details != null && details.contains("\"number\":\"")) {
+            return details.split("\"number\":\"")[1].split("\"")[0];
+        }
+        return "Bus #" + busId + " (Indisponible)";
+    }
+
     // ==============================
     // REPORT BY CHAUFFEUR
     // ==============================
+
+    /**
+     * Report by chauffeur over live trajets only; archived trajets are
+     * reached through the ranged variant, which reads just the months it covers
+     */
     public Map<String, List<Trajet>> generateReportByChauffeur() {
         Map<String, List<Trajet>> report = new HashMap<>();
-        Map<Long, String> chauffeurNames = new HashMap<>();
+        Map<Long, String> chauffeurNames = resolveChauffeurIdentifiers(trajetService.getAssignedChauffeurIds());
+
+        for (Long chauffeurId : chauffeurNames.keySet()) {
+            report.computeIfAbsent(
+                    chauffeurNames.get(chauffeurId),
+                    k -> new java.util.ArrayList<>()).addAll(trajetService.findByChauffeurId(chauffeurId));
+        }
+
+        LOGGER.info("Report by chauffeur generated");
+        return report;
+    }
+
+    /**
+     * Report by chauffeur restricted to trajets departing in [from, to];
+     * archived trajets are included when the range reaches them
+     */
+    public Map<String, List<Trajet>> generateReportByChauffeur(LocalDateTime from, LocalDateTime to) {
+        Map<String, List<Trajet>> report = new HashMap<>();
+        List<Trajet> trajets = trajetService.findByDepartureBetween(from, to);
+        Map<Long, String> chauffeurNames = resolveChauffeurIdentifiers(trajets.stream()
+                .map(Trajet::getChauffeurId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
 
-        for (Trajet trajet : trajetService.findAll()) {
+        for (Trajet trajet : trajets) {
             if (trajet.getChauffeurId() != null) {
                 String chauffeurIdentifier = chauffeurNames.get(trajet.getChauffeurId());
-                if (chauffeurIdentifier == null) {
-                    try {
-                        String details = chauffeurServiceClient.getChauffeurDetails(trajet.getChauffeurId());
-                        if (details != null && details.contains("\"name\":\"")) {
-                            chauffeurIdentifier = details.split("\"name\":\"")[1].split("\"")[0];
-                        } else {
-                            chauffeurIdentifier = "Chauffeur #" + trajet.getChauffeurId() + " (Indisponible)";
-                        }
-                    } catch (Exception e) {
-                        chauffeurIdentifier = "Chauffeur #" + trajet.getChauffeurId() + " (Indisponible)";
-                    }
-                    chauffeurNames.put(trajet.getChauffeurId(), chauffeurIdentifier);
-                }
-
-                report.computeIfAbsent(
-                        chauffeurIdentifier,
-                        k -> new java.util.ArrayList<>()).add(trajet);
+                report.computeIfAbsent(chauffeurIdentifier, k -> new java.util.ArrayList<>()).add(trajet);
             }
         }
 
-        LOGGER.info("Report by chauffeur generated");
+        LOGGER.info("Report by chauffeur generated for " + from + " - " + to);
         return report;
     }
 
+    /**
+     * Report by chauffeur as a lazy sequence of {"chauffeur": ..., "trajets": [...]} rows,
+     * live trajets only
+     */
+    public Stream<Map<String, Object>> streamReportByChauffeur() {
+        Map<Long, String> chauffeurNames = resolveChauffeurIdentifiers(trajetService.getAssignedChauffeurIds());
+        return chauffeurNames.keySet().stream()
+                .map(chauffeurId -> row("chauffeur", chauffeurNames.get(chauffeurId),
+                        "trajets", trajetService.findByChauffeurId(chauffeurId)));
+    }
+
+    /**
+     * Report by chauffeur restricted to [from, to], as {"chauffeur": ..., "trajets": [...]} rows
+     */
+    public Stream<Map<String, Object>> streamReportByChauffeur(LocalDateTime from, LocalDateTime to) {
+        return generateReportByChauffeur(from, to).entrySet().stream()
+                .map(entry -> row("chauffeur", entry.getKey(), "trajets", entry.getValue()));
+    }
+
+    /**
+     * Display name of each chauffeur, with the details fetched in one batch
+     */
+    private Map<Long, String> resolveChauffeurIdentifiers(Collection<Long> chauffeurIds) {
+        Map<Long, String> details = chauffeurServiceClient.getChauffeurDetails(chauffeurIds);
+        Map<Long, String> names = new LinkedHashMap<>();
+        chauffeurIds.forEach(chauffeurId -> names.put(chauffeurId,
+                chauffeurIdentifier(chauffeurId, details.get(chauffeurId))));
+        return names;
+    }
+
+    private static String chauffeurIdentifier(Long chauffeurId, String details) {
+        if (details != null && details.contains("\"name\":\"")) {
+            return details.split("\"name\":\"")[1].split("\"")[0];
+        }
+        return "Chauffeur #" + chauffeurId + " (Indisponible)";
+    }
+
     // ==============================
     // RESERVATIONS + TRAJETS
     // ==============================
+
+    /**
+     * Live reservations with their trajet, which may be archived already
+     */
     public Map<Reservation, Trajet> getReservationsWithTrajets() {
 
         Map<Reservation, Trajet> result = new HashMap<>();
 
-        for (Reservation reservation : reservationService.findAll()) {
+        reservationService.streamAll().forEach(reservation -> {
             Trajet trajet = trajetService.findByReservationId(reservation.getId());
             result.put(reservation, trajet);
-        }
+        });
 
         LOGGER.info("Reservations with trajets loaded");
         return result;
     }
+
+    /**
+     * Reservations with their trajet as a lazy sequence of
+     * {"reservation": ..., "trajet": ...} rows
+     */
+    public Stream<Map<String, Object>> streamReservationsWithTrajets() {
+        return reservationService.streamAll()
+                .map(reservation -> row("reservation", reservation,
+                        "trajet", trajetService.findByReservationId(reservation.getId())));
+    }
+
+    private static Map<String, Object> row(String firstKey, Object first, String secondKey, Object second) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(firstKey, first);
+        row.put(secondKey, second);
+        return row;
+    }
 }
@@ -0,0 +1,52 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import com.jakarta.udb.agencetransportpart3.entity.Reservation;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary layout of a Reservation record. Field order must never change for
+ * an existing data file; append new fields at the end.
+ */
+class ReservationCodec extends BinaryCodec<Reservation> {
+
+    @Override
+    void encode(Reservation reservation, DataOutputStream out) throws IOException {
+        writeString(out, reservation.getPassengerName());
+        writeString(out, reservation.getPassengerEmail());
+        writeString(out, reservation.getPassengerPhone());
+        writeString(out, reservation.getDepartureLocation());
+        writeString(out, reservation.getDestinationLocation());
+        writeDateTime(out, reservation.getDepartureDate());
+        writeInteger(out, reservation.getNumberOfSeats());
+        writeString(out, reservation.getStatus());
+        writeLong(out, reservation.getTrajetId());
+        writeDateTime(out, reservation.getCreatedAt());
+        writeDateTime(out, reservation.getUpdatedAt());
+        writeLong(out, reservation.getVersion());
+    }
+
+    @Override
+    Reservation decode(long id, ByteBuffer in) {
+        Reservation reservation = new Reservation();
+        reservation.setId(id);
+        reservation.setPassengerName(readString(in));
+        reservation.setPassengerEmail(readString(in));
+        reservation.setPassengerPhone(readString(in));
+        reservation.setDepartureLocation(readString(in));
+        reservation.setDestinationLocation(readString(in));
+        reservation.setDepartureDate(readDateTime(in));
+        reservation.setNumberOfSeats(readInteger(in));
+        reservation.setStatus(readString(in));
+        reservation.setTrajetId(readLong(in));
+        reservation.setCreatedAt(readDateTime(in));
+        reservation.setUpdatedAt(readDateTime(in));
+        // Added after the first format version: absent from older records
+        if (in.hasRemaining()) {
+            reservation.setVersion(readLong(in));
+        }
+        return reservation;
+    }
+}
@@ -1,16 +1,24 @@
 package com.jakarta.udb.agencetransportpart3.service;
 
 import com.jakarta.udb.agencetransportpart3.entity.Reservation;
-import com.jakarta.udb.agencetransportpart3.entity.Trajet;
 import com.jakarta.udb.agencetransportpart3.integration.BusServiceClient;
 import com.jakarta.udb.agencetransportpart3.integration.ChauffeurServiceClient;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class ReservationService {
@@ -29,6 +37,22 @@ public class ReservationService {
     @Inject
     private TrajetService trajetService;
 
+    @Inject
+    private ArchiveService archiveService;
+
+    private EntityIndex<Reservation, String> statusIndex;
+    private SortedEntityIndex<Reservation, LocalDateTime> departureIndex;
+
+    @PostConstruct
+    public void init() {
+        statusIndex = persistenceService.createIndex(Reservation.class, r -> normalizeStatus(r.getStatus()));
+        departureIndex = persistenceService.createSortedIndex(Reservation.class, Reservation::getDepartureDate);
+    }
+
+    private static String normalizeStatus(String status) {
+        return status == null ? null : status.toUpperCase();
+    }
+
     // ==============================
     // FIND ALL
     // ==============================
@@ -36,38 +60,61 @@ public class ReservationService {
         return persistenceService.loadAll(Reservation.class);
     }
 
+    public List<Reservation> findPage(Long after, int limit) {
+        return persistenceService.page(Reservation.class, after, limit);
+    }
+
+    public Stream<Reservation> streamAll() {
+        return persistenceService.stream(Reservation.class);
+    }
+
     // ==============================
     // CREATE
     // ==============================
     public Reservation createReservation(Reservation reservation) {
 
-        List<Reservation> all = findAll();
-
-        long nextId = all.stream()
-                .mapToLong(Reservation::getId)
-                .max()
-                .orElse(0L) + 1;
-
-        reservation.setId(nextId);
         reservation.setStatus("PENDING");
         reservation.setCreatedAt(LocalDateTime.now());
         reservation.setUpdatedAt(LocalDateTime.now());
 
-        all.add(reservation);
-        persistenceService.saveAll(all, Reservation.class);
+        reservation.setId(persistenceService.nextId(Reservation.class));
+        persistenceService.save(reservation, Reservation.class);
 
-        LOGGER.info("Reservation created: " + nextId);
+        LOGGER.info("Reservation created: " + reservation.getId());
         return reservation;
     }
 
+    /**
+     * Create a batch of reservations with a single persistence write
+     */
+    public List<Reservation> createReservations(List<Reservation> reservations) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Reservation reservation : reservations) {
+            reservation.setStatus("PENDING");
+            reservation.setCreatedAt(now);
+            reservation.setUpdatedAt(now);
+            reservation.setId(persistenceService.nextId(Reservation.class));
+        }
+        persistenceService.saveBatch(reservations, Reservation.class);
+
+        LOGGER.info("Reservations created: " + reservations.size());
+        return reservations;
+    }
+
     // ==============================
     // FIND BY ID
     // ==============================
     public Reservation findById(Long id) {
-        return findAll().stream()
-                .filter(r -> r.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return persistenceService.findById(Reservation.class, id);
+    }
+
+    /**
+     * Find a reservation by ID, live or archived. Use findById for a
+     * reservation that is about to be changed: archived ones are read-only.
+     */
+    public Reservation findByIdIncludingArchive(Long id) {
+        Reservation reservation = findById(id);
+        return reservation != null ? reservation : archiveService.findById(Reservation.class, id);
     }
 
     // ==============================
@@ -75,29 +122,76 @@ public class ReservationService {
     // ==============================
     public Reservation updateReservation(Reservation reservation) {
 
-        List<Reservation> all = findAll();
         reservation.setUpdatedAt(LocalDateTime.now());
 
-        for (int i = 0; i < all.size(); i++) {
-            if (all.get(i).getId().equals(reservation.getId())) {
-                all.set(i, reservation);
-                persistenceService.saveAll(all, Reservation.class);
-                LOGGER.info("Reservation updated: " + reservation.getId());
-                return reservation;
-            }
+        if (persistenceService.update(reservation, Reservation.class)) {
+            LOGGER.info("Reservation updated: " + reservation.getId());
+            return reservation;
         }
 
         LOGGER.warning("Reservation not found for update: " + reservation.getId());
         return null;
     }
 
+    /**
+     * Apply a JSON Merge Patch to a reservation; returns null if it does not exist.
+     * Throws VersionConflictException if {@code expectedVersion} is stale.
+     */
+    public Reservation patchReservation(Long id, JsonObject patch, Long expectedVersion) {
+        JsonObject delta = Json.createObjectBuilder(patch)
+                .add("updatedAt", LocalDateTime.now().toString())
+                .build();
+        Reservation patched = persistenceService.patch(Reservation.class, id, delta, expectedVersion);
+        if (patched != null) {
+            LOGGER.info("Patched reservation " + id + ": " + patch.keySet());
+        }
+        return patched;
+    }
+
     // ==============================
     // FIND BY STATUS
     // ==============================
     public List<Reservation> findByStatus(String status) {
-        return findAll().stream()
-                .filter(r -> r.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+        return persistenceService.findBy(statusIndex, normalizeStatus(status));
+    }
+
+    public Stream<Reservation> streamByStatus(String status) {
+        return persistenceService.streamBy(statusIndex, normalizeStatus(status));
+    }
+
+    public List<Reservation> findByStatusPage(String status, Long after, int limit) {
+        return persistenceService.pageBy(statusIndex, normalizeStatus(status), after, limit);
+    }
+
+    // ==============================
+    // FIND BY DEPARTURE DATE
+    // ==============================
+    public List<Reservation> findByDepartureBetween(LocalDateTime from, LocalDateTime to) {
+        List<Reservation> live = persistenceService.findBetween(departureIndex, from, to);
+        if (!archiveService.covers(Reservation.class, from, to)) {
+            return live;
+        }
+
+        // Archived months are merged in; the live copy wins on duplicates
+        Map<Long, Reservation> merged = new LinkedHashMap<>();
+        archiveService.findBetween(Reservation.class, from, to)
+                .forEach(reservation -> merged.put(reservation.getId(), reservation));
+        live.forEach(reservation -> merged.put(reservation.getId(), reservation));
+
+        List<Reservation> reservations = new ArrayList<>(merged.values());
+        reservations.sort(Comparator.comparing(Reservation::getDepartureDate).thenComparing(Reservation::getId));
+        return reservations;
+    }
+
+    public long countByDepartureBetween(String status, LocalDateTime from, LocalDateTime to) {
+        String wanted = normalizeStatus(status);
+        long live = persistenceService.countBetween(departureIndex, from, to,
+                r -> wanted == null || wanted.equals(normalizeStatus(r.getStatus())));
+        return live + archiveService.countBetween(Reservation.class, wanted, from, to);
+    }
+
+    public long getArchivedReservationsCount(String status) {
+        return archiveService.count(Reservation.class, status);
     }
 
     // ==============================
@@ -114,52 +208,74 @@ public class ReservationService {
 
         String dateStr = reservation.getDepartureDate().toString();
 
-        // If reservation is already linked to a trajet, use that trajet's info or
-        // update it
-        if (reservation.getTrajetId() != null) {
-            Trajet trajet = trajetService.findById(reservation.getTrajetId());
-            if (trajet != null) {
-                trajet.setBusId(busId);
-                trajet.setChauffeurId(chauffeurId);
-                trajetService.updateTrajet(trajet);
-            }
-        }
-
-        if (!busServiceClient.checkBusAvailability(busId, dateStr)) {
+        // Both services are asked at once; the first negative answer decides
+        if (!allAvailable(List.of(
+                busServiceClient.checkBusAvailabilityAsync(busId, dateStr),
+                chauffeurServiceClient.checkChauffeurAvailabilityAsync(chauffeurId, dateStr)))) {
             return false;
         }
 
-        if (!chauffeurServiceClient.checkChauffeurAvailability(chauffeurId, dateStr)) {
-            return false;
+        // If reservation is already linked to a trajet, update it; only once the
+        // checks passed, since the assignment invalidates the answers just used
+        if (reservation.getTrajetId() != null) {
+            trajetService.assignResources(reservation.getTrajetId(), busId, chauffeurId);
         }
 
-        reservation.setStatus("CONFIRMED");
-        updateReservation(reservation);
+        // Availability checks are remote calls and stay outside the lock
+        boolean confirmed = persistenceService.write(Reservation.class, () -> {
+            Reservation current = findById(reservationId);
+            if (current == null) {
+                return false;
+            }
+            current.setStatus("CONFIRMED");
+            updateReservation(current);
+            return true;
+        });
+
+        if (confirmed) {
+            LOGGER.info("Reservation confirmed: " + reservationId);
+        }
+        return confirmed;
+    }
 
-        LOGGER.info("Reservation confirmed: " + reservationId);
-        return true;
+    /**
+     * Wait for availability checks running in parallel: false as soon as one
+     * answers false or fails, true once all of them answered true
+     */
+    private static boolean allAvailable(List<CompletionStage<Boolean>> checks) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        for (CompletionStage<Boolean> check : checks) {
+            check.whenComplete((available, error) -> {
+                if (error != null || !Boolean.TRUE.equals(available)) {
+                    result.complete(false);
+                }
+            });
+        }
+        CompletableFuture.allOf(checks.stream()
+                .map(CompletionStage::toCompletableFuture)
+                .toArray(CompletableFuture[]::new))
+                .thenRun(() -> result.complete(true));
+        return result.join();
     }
 
     // ==============================
     // CANCEL
     // ==============================
     public void cancelReservation(Long id) {
-        Reservation reservation = findById(id);
-        if (reservation != null) {
-            reservation.setStatus("CANCELLED");
-            updateReservation(reservation);
-        }
+        persistenceService.write(Reservation.class, () -> {
+            Reservation reservation = findById(id);
+            if (reservation != null) {
+                reservation.setStatus("CANCELLED");
+                updateReservation(reservation);
+            }
+        });
     }
 
     // ==============================
     // DELETE
     // ==============================
     public void deleteReservation(Long id) {
-        List<Reservation> all = findAll();
-        boolean removed = all.removeIf(r -> r.getId().equals(id));
-
-        if (removed) {
-            persistenceService.saveAll(all, Reservation.class);
+        if (persistenceService.delete(Reservation.class, id)) {
             LOGGER.info("Reservation deleted: " + id);
         }
     }
@@ -167,15 +283,15 @@ public class ReservationService {
     // ==============================
     // STATS
     // ==============================
+    public long getTotalReservationsCount() {
+        return persistenceService.count(Reservation.class);
+    }
+
     public long getPendingReservationsCount() {
-        return findAll().stream()
-                .filter(r -> "PENDING".equalsIgnoreCase(r.getStatus()))
-                .count();
+        return statusIndex.count("PENDING");
     }
 
     public long getConfirmedReservationsCount() {
-        return findAll().stream()
-                .filter(r -> "CONFIRMED".equalsIgnoreCase(r.getStatus()))
-                .count();
+        return statusIndex.count("CONFIRMED");
     }
 }
@@ -0,0 +1,125 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of an archive segment, stored uncompressed at the end of the
+ * file: entity count, id range, departure range and count per status.
+ * It lets readers skip a segment, or count its content, without
+ * decompressing it.
+ */
+final class SegmentFooter {
+
+    private int count;
+    private long minId = Long.MAX_VALUE;
+    private long maxId = Long.MIN_VALUE;
+    private LocalDateTime minDate;
+    private LocalDateTime maxDate;
+    private final Map<String, Integer> statusCounts = new TreeMap<>();
+
+    /**
+     * Fold one entity into the summary
+     */
+    <T> void add(T entity, ArchiveSchema<T> schema) {
+        count++;
+        Long id = schema.idOf(entity);
+        if (id != null) {
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+        LocalDateTime date = schema.dateOf(entity);
+        if (date != null) {
+            minDate = minDate == null || date.isBefore(minDate) ? date : minDate;
+            maxDate = maxDate == null || date.isAfter(maxDate) ? date : maxDate;
+        }
+        String status = schema.statusOf(entity);
+        if (status != null) {
+            statusCounts.merge(status, 1, Integer::sum);
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getMinId() {
+        return minId;
+    }
+
+    long getMaxId() {
+        return maxId;
+    }
+
+    LocalDateTime getMinDate() {
+        return minDate;
+    }
+
+    LocalDateTime getMaxDate() {
+        return maxDate;
+    }
+
+    Map<String, Integer> getStatusCounts() {
+        return Collections.unmodifiableMap(statusCounts);
+    }
+
+    /**
+     * Whether [minDate, maxDate] intersects [from, to]; null bounds are open
+     */
+    boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        if (minDate == null) {
+            return false;
+        }
+        return (from == null || !maxDate.isBefore(from)) && (to == null || !minDate.isAfter(to));
+    }
+
+    /**
+     * Whether [minDate, maxDate] lies entirely within [from, to]
+     */
+    boolean within(LocalDateTime from, LocalDateTime to) {
+        if (minDate == null) {
+            return true;
+        }
+        return (from == null || !minDate.isBefore(from)) && (to == null || !maxDate.isAfter(to));
+    }
+
+    String toJson() {
+        JsonObjectBuilder statuses = Json.createObjectBuilder();
+        statusCounts.forEach(statuses::add);
+        JsonObjectBuilder footer = Json.createObjectBuilder()
+                .add("count", count)
+                .add("minId", minId)
+                .add("maxId", maxId)
+                .add("statusCounts", statuses);
+        if (minDate != null) {
+            footer.add("minDate", minDate.toString()).add("maxDate", maxDate.toString());
+        }
+        return footer.build().toString();
+    }
+
+    static SegmentFooter fromJson(String json) {
+        JsonObject object;
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            object = reader.readObject();
+        }
+        SegmentFooter footer = new SegmentFooter();
+        footer.count = object.getInt("count");
+        footer.minId = object.getJsonNumber("minId").longValue();
+        footer.maxId = object.getJsonNumber("maxId").longValue();
+        if (object.containsKey("minDate")) {
+            footer.minDate = LocalDateTime.parse(object.getString("minDate"));
+            footer.maxDate = LocalDateTime.parse(object.getString("maxDate"));
+        }
+        object.getJsonObject("statusCounts")
+                .forEach((status, value) -> footer.statusCounts.put(status, Integer.parseInt(value.toString())));
+        return footer;
+    }
+}
@@ -0,0 +1,133 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import jakarta.json.bind.Jsonb;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Crash-safe JSON snapshot of one entity type.
+ * A new generation is written to "<file>.tmp", forced to disk, and renamed
+ * over the live file, then the directory is forced so the rename survives a
+ * crash; the generation it replaces is kept as "<file>.bak".
+ * Loading falls back to the backup when the live file is missing or
+ * cannot be parsed.
+ *
+ * Both directions are streamed element by element (see JsonArrayStreams).
+ */
+class SnapshotFile<T> {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotFile.class.getName());
+
+    private final Path live;
+    private final Path temp;
+    private final Path backup;
+    private final Class<T> type;
+    private final Jsonb jsonb;
+
+    SnapshotFile(Path live, Class<T> type, Jsonb jsonb) {
+        this.live = live;
+        this.temp = live.resolveSibling(live.getFileName() + ".tmp");
+        this.backup = live.resolveSibling(live.getFileName() + ".bak");
+        this.type = type;
+        this.jsonb = jsonb;
+    }
+
+    /**
+     * Stream the newest readable generation into a store. Elements are
+     * parsed one at a time; if a generation turns out to be corrupt
+     * half-way, the store is cleared before trying the next one.
+     */
+    void load(EntityStore<T> store) {
+        if (Files.exists(live)) {
+            try {
+                read(live, store);
+                return;
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Snapshot " + live.getFileName() + " is unreadable, trying backup", e);
+                store.clear();
+                quarantine();
+            }
+        }
+
+        if (Files.exists(backup)) {
+            try {
+                read(backup, store);
+                LOGGER.warning("Recovered " + store.size() + " " + type.getSimpleName()
+                        + " from " + backup.getFileName());
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Backup " + backup.getFileName() + " is unreadable too", e);
+                store.clear();
+            }
+        }
+    }
+
+    private void read(Path path, EntityStore<T> store) throws IOException {
+        if (Files.size(path) == 0) {
+            return;
+        }
+
+        long skipped = 0;
+        try (Stream<T> entities = JsonArrayStreams.read(
+                Files.newBufferedReader(path, StandardCharsets.UTF_8), type, jsonb)) {
+            Iterator<T> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                T entity = iterator.next();
+                if (store.idOf(entity) == null) {
+                    skipped++;
+                } else {
+                    store.put(entity);
+                }
+            }
+        }
+        if (skipped > 0) {
+            LOGGER.warning("Ignoring " + skipped + " " + type.getSimpleName() + " without id");
+        }
+    }
+
+    /**
+     * Move a corrupt live file aside so the next write cannot destroy
+     * evidence and the backup is not rotated over
+     */
+    private void quarantine() {
+        String suffix = ".corrupt-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        try {
+            Files.move(live, live.resolveSibling(live.getFileName() + suffix));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot move aside " + live.getFileName(), e);
+        }
+    }
+
+    /**
+     * Write a new generation: temp file, fsync, rotate live to backup,
+     * atomic rename of temp to live, fsync of the directory
+     */
+    synchronized void write(Collection<T> entities) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(temp.toFile());
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+            JsonArrayStreams.write(writer, entities.iterator(), jsonb);
+            writer.flush();
+            output.getFD().sync();
+        }
+
+        if (Files.exists(live)) {
+            Files.move(live, backup, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, live, StandardCopyOption.ATOMIC_MOVE);
+        DurableFiles.syncDirectory(live.toAbsolutePath().getParent());
+    }
+}
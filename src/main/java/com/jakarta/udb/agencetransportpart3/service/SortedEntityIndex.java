@@ -0,0 +1,43 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Secondary index kept in key order (skip list), for range queries such
+ * as "trajets departing between X and Y".
+ */
+public class SortedEntityIndex<T, K extends Comparable<? super K>> extends EntityIndex<T, K> {
+
+    SortedEntityIndex(Class<T> type, Function<T, K> keyGetter) {
+        super(type, keyGetter, new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Ids whose key lies in [from, to], ordered by key then id.
+     * A null bound leaves that side of the range open; an inverted range
+     * (from after to) is empty.
+     */
+    public List<Long> idsBetween(K from, K to) {
+        ConcurrentNavigableMap<K, Bucket> sorted = (ConcurrentNavigableMap<K, Bucket>) buckets;
+        ConcurrentNavigableMap<K, Bucket> range;
+        if (from != null && to != null) {
+            if (from.compareTo(to) > 0) {
+                return List.of();
+            }
+            range = sorted.subMap(from, true, to, true);
+        } else if (from != null) {
+            range = sorted.tailMap(from, true);
+        } else if (to != null) {
+            range = sorted.headMap(to, true);
+        } else {
+            range = sorted;
+        }
+        return range.values().stream()
+                .flatMap(bucket -> bucket.ids.stream())
+                .collect(Collectors.toList());
+    }
+}
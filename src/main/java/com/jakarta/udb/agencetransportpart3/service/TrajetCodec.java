@@ -0,0 +1,62 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+import com.jakarta.udb.agencetransportpart3.entity.Trajet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary layout of a Trajet record. Field order must never change for an
+ * existing data file; append new fields at the end.
+ */
+class TrajetCodec extends BinaryCodec<Trajet> {
+
+    @Override
+    void encode(Trajet trajet, DataOutputStream out) throws IOException {
+        writeLong(out, trajet.getReservationId());
+        writeLong(out, trajet.getBusId());
+        writeString(out, trajet.getBusNumber());
+        writeLong(out, trajet.getChauffeurId());
+        writeString(out, trajet.getChauffeurName());
+        writeString(out, trajet.getDepartureLocation());
+        writeString(out, trajet.getDestinationLocation());
+        writeDateTime(out, trajet.getDepartureDate());
+        writeDateTime(out, trajet.getArrivalDate());
+        writeString(out, trajet.getStatus());
+        writeDouble(out, trajet.getDistanceKm());
+        writeDateTime(out, trajet.getActualDepartureDate());
+        writeDateTime(out, trajet.getActualArrivalDate());
+        writeString(out, trajet.getNotes());
+        writeDateTime(out, trajet.getCreatedAt());
+        writeDateTime(out, trajet.getUpdatedAt());
+        writeLong(out, trajet.getVersion());
+    }
+
+    @Override
+    Trajet decode(long id, ByteBuffer in) {
+        Trajet trajet = new Trajet();
+        trajet.setId(id);
+        trajet.setReservationId(readLong(in));
+        trajet.setBusId(readLong(in));
+        trajet.setBusNumber(readString(in));
+        trajet.setChauffeurId(readLong(in));
+        trajet.setChauffeurName(readString(in));
+        trajet.setDepartureLocation(readString(in));
+        trajet.setDestinationLocation(readString(in));
+        trajet.setDepartureDate(readDateTime(in));
+        trajet.setArrivalDate(readDateTime(in));
+        trajet.setStatus(readString(in));
+        trajet.setDistanceKm(readDouble(in));
+        trajet.setActualDepartureDate(readDateTime(in));
+        trajet.setActualArrivalDate(readDateTime(in));
+        trajet.setNotes(readString(in));
+        trajet.setCreatedAt(readDateTime(in));
+        trajet.setUpdatedAt(readDateTime(in));
+        // Added after the first format version: absent from older records
+        if (in.hasRemaining()) {
+            trajet.setVersion(readLong(in));
+        }
+        return trajet;
+    }
+}
@@ -4,14 +4,23 @@ import com.jakarta.udb.agencetransportpart3.entity.Trajet;
 import com.jakarta.udb.agencetransportpart3.entity.Reservation;
 import com.jakarta.udb.agencetransportpart3.integration.BusServiceClient;
 import com.jakarta.udb.agencetransportpart3.integration.ChauffeurServiceClient;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.json.bind.Jsonb;
-import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for managing Trajets (Trips) using JSON persistence
@@ -33,26 +42,62 @@ public class TrajetService {
     @Inject
     private ChauffeurServiceClient chauffeurServiceClient;
 
+    @Inject
+    private ArchiveService archiveService;
+
+    private EntityIndex<Trajet, String> statusIndex;
+    private EntityIndex<Trajet, Long> reservationIndex;
+    private EntityIndex<Trajet, Long> busIndex;
+    private EntityIndex<Trajet, Long> chauffeurIndex;
+    private SortedEntityIndex<Trajet, LocalDateTime> departureIndex;
+
+    @PostConstruct
+    public void init() {
+        statusIndex = persistenceService.createIndex(Trajet.class, t -> normalizeStatus(t.getStatus()));
+        reservationIndex = persistenceService.createIndex(Trajet.class, Trajet::getReservationId);
+        busIndex = persistenceService.createIndex(Trajet.class, Trajet::getBusId);
+        chauffeurIndex = persistenceService.createIndex(Trajet.class, Trajet::getChauffeurId);
+        departureIndex = persistenceService.createSortedIndex(Trajet.class, Trajet::getDepartureDate);
+    }
+
+    private static String normalizeStatus(String status) {
+        return status == null ? null : status.toUpperCase();
+    }
+
     /**
      * Create a direct trajet (without initial reservation)
      */
     public Trajet createDirectTrajet(Trajet trajet) {
-        List<Trajet> all = findAll();
-        long nextId = all.stream()
-                .mapToLong(Trajet::getId)
-                .max()
-                .orElse(0L) + 1;
-
-        trajet.setId(nextId);
         trajet.setStatus("PLANNED");
         trajet.setCreatedAt(LocalDateTime.now());
         trajet.setUpdatedAt(LocalDateTime.now());
 
-        all.add(trajet);
-        persistenceService.saveAll(all, Trajet.class);
+        trajet.setId(persistenceService.nextId(Trajet.class));
+        persistenceService.save(trajet, Trajet.class);
+        invalidateAvailability(trajet);
         return trajet;
     }
 
+    /**
+     * Create a batch of direct trajets with a single persistence write
+     */
+    public List<Trajet> createDirectTrajets(List<Trajet> trajets) {
+        resolveResourceNames(trajets);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Trajet trajet : trajets) {
+            trajet.setStatus("PLANNED");
+            trajet.setCreatedAt(now);
+            trajet.setUpdatedAt(now);
+            trajet.setId(persistenceService.nextId(Trajet.class));
+        }
+        persistenceService.saveBatch(trajets, Trajet.class);
+        trajets.forEach(this::invalidateAvailability);
+
+        LOGGER.info("Created " + trajets.size() + " trajets in JSON");
+        return trajets;
+    }
+
     /**
      * Create a new trajet from a reservation
      */
@@ -64,16 +109,7 @@ public class TrajetService {
             throw new IllegalArgumentException("Reservation not found: " + reservationId);
         }
 
-        List<Trajet> all = findAll();
-
-        // Manual ID generation
-        long nextId = all.stream()
-                .mapToLong(Trajet::getId)
-                .max()
-                .orElse(0L) + 1;
-
         Trajet trajet = new Trajet();
-        trajet.setId(nextId);
         trajet.setReservationId(reservationId);
         trajet.setDepartureLocation(reservation.getDepartureLocation());
         trajet.setDestinationLocation(reservation.getDestinationLocation());
@@ -85,37 +121,18 @@ public class TrajetService {
         // Get bus details from Service 1
         if (busId != null) {
             trajet.setBusId(busId);
-            try {
-                String busDetails = busServiceClient.getBusDetails(busId);
-                if (busDetails != null && busDetails.contains("\"number\":\"")) {
-                    String number = busDetails.split("\"number\":\"")[1].split("\"")[0];
-                    trajet.setBusNumber(number);
-                } else {
-                    trajet.setBusNumber("Bus #" + busId + " (Indisponible)");
-                }
-            } catch (Exception e) {
-                trajet.setBusNumber("Bus #" + busId + " (Indisponible)");
-            }
+            trajet.setBusNumber(resolveBusNumber(busId));
         }
 
         // Get chauffeur details from Service 2
         if (chauffeurId != null) {
             trajet.setChauffeurId(chauffeurId);
-            try {
-                String chauffeurDetails = chauffeurServiceClient.getChauffeurDetails(chauffeurId);
-                if (chauffeurDetails != null && chauffeurDetails.contains("\"name\":\"")) {
-                    String name = chauffeurDetails.split("\"name\":\"")[1].split("\"")[0];
-                    trajet.setChauffeurName(name);
-                } else {
-                    trajet.setChauffeurName("Chauffeur #" + chauffeurId + " (Indisponible)");
-                }
-            } catch (Exception e) {
-                trajet.setChauffeurName("Chauffeur #" + chauffeurId + " (Indisponible)");
-            }
+            trajet.setChauffeurName(resolveChauffeurName(chauffeurId));
         }
 
-        all.add(trajet);
-        persistenceService.saveAll(all, Trajet.class);
+        trajet.setId(persistenceService.nextId(Trajet.class));
+        persistenceService.save(trajet, Trajet.class);
+        invalidateAvailability(trajet);
 
         LOGGER.info("Created trajet in JSON: " + trajet.getId());
         return trajet;
@@ -125,10 +142,7 @@ public class TrajetService {
      * Find trajet by ID
      */
     public Trajet findById(Long id) {
-        return findAll().stream()
-                .filter(t -> t.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return persistenceService.findById(Trajet.class, id);
     }
 
     /**
@@ -138,68 +152,203 @@ public class TrajetService {
         return persistenceService.loadAll(Trajet.class);
     }
 
+    /**
+     * Get a page of trajets with an id greater than {@code after}
+     */
+    public List<Trajet> findPage(Long after, int limit) {
+        return persistenceService.page(Trajet.class, after, limit);
+    }
+
+    /**
+     * Scan all trajets without copying them into a list
+     */
+    public Stream<Trajet> streamAll() {
+        return persistenceService.stream(Trajet.class);
+    }
+
     /**
      * Get trajets by status
      */
     public List<Trajet> findByStatus(String status) {
-        return findAll().stream()
-                .filter(t -> t.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+        return persistenceService.findBy(statusIndex, normalizeStatus(status));
     }
 
     /**
-     * Get trajet by reservation ID
+     * Scan trajets by status without copying them into a list
+     */
+    public Stream<Trajet> streamByStatus(String status) {
+        return persistenceService.streamBy(statusIndex, normalizeStatus(status));
+    }
+
+    /**
+     * Get a page of trajets by status
+     */
+    public List<Trajet> findByStatusPage(String status, Long after, int limit) {
+        return persistenceService.pageBy(statusIndex, normalizeStatus(status), after, limit);
+    }
+
+    /**
+     * Find a trajet by ID, live or archived. Use findById for a trajet that
+     * is about to be changed: archived ones are read-only.
+     */
+    public Trajet findByIdIncludingArchive(Long id) {
+        Trajet trajet = findById(id);
+        return trajet != null ? trajet : archiveService.findById(Trajet.class, id);
+    }
+
+    /**
+     * Get trajet by reservation ID, live or archived. An archived trajet is
+     * looked for on its reservation's departure day, so only the segments
+     * covering that day are read.
      */
     public Trajet findByReservationId(Long reservationId) {
-        return findAll().stream()
-                .filter(t -> t.getReservationId() != null && t.getReservationId().equals(reservationId))
+        Trajet live = persistenceService.findBy(reservationIndex, reservationId)
+                .stream()
                 .findFirst()
                 .orElse(null);
+        if (live != null) {
+            return live;
+        }
+
+        Reservation reservation = reservationService.findByIdIncludingArchive(reservationId);
+        if (reservation == null || reservation.getDepartureDate() == null) {
+            return null;
+        }
+        LocalDateTime from = reservation.getDepartureDate().toLocalDate().atStartOfDay();
+        LocalDateTime to = reservation.getDepartureDate().toLocalDate().atTime(LocalTime.MAX);
+        if (!archiveService.covers(Trajet.class, from, to)) {
+            return null;
+        }
+        return archiveService.findBetween(Trajet.class, from, to).stream()
+                .filter(trajet -> reservationId.equals(trajet.getReservationId()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Get trajets assigned to a bus
+     */
+    public List<Trajet> findByBusId(Long busId) {
+        return persistenceService.findBy(busIndex, busId);
+    }
+
+    /**
+     * Get trajets assigned to a chauffeur
+     */
+    public List<Trajet> findByChauffeurId(Long chauffeurId) {
+        return persistenceService.findBy(chauffeurIndex, chauffeurId);
+    }
+
+    /**
+     * Count trajets with the given status (all when null) departing between
+     * two dates, live and archived
+     */
+    public long countByDepartureBetween(String status, LocalDateTime from, LocalDateTime to) {
+        String wanted = normalizeStatus(status);
+        long live = persistenceService.countBetween(departureIndex, from, to,
+                t -> wanted == null || wanted.equals(normalizeStatus(t.getStatus())));
+        return live + archiveService.countBetween(Trajet.class, wanted, from, to);
+    }
+
+    /**
+     * Number of archived trajets with the given status (all when null)
+     */
+    public long getArchivedTrajetsCount(String status) {
+        return archiveService.count(Trajet.class, status);
+    }
+
+    /**
+     * Get trajets departing between two dates (inclusive), ordered by departure.
+     * A null bound leaves that side open. Archives are only read when the
+     * range reaches an archived month.
+     */
+    public List<Trajet> findByDepartureBetween(LocalDateTime from, LocalDateTime to) {
+        List<Trajet> live = persistenceService.findBetween(departureIndex, from, to);
+        if (!archiveService.covers(Trajet.class, from, to)) {
+            return live;
+        }
+
+        Map<Long, Trajet> merged = new LinkedHashMap<>();
+        archiveService.findBetween(Trajet.class, from, to)
+                .forEach(trajet -> merged.put(trajet.getId(), trajet));
+        live.forEach(trajet -> merged.put(trajet.getId(), trajet));
+
+        List<Trajet> trajets = new ArrayList<>(merged.values());
+        trajets.sort(Comparator.comparing(Trajet::getDepartureDate).thenComparing(Trajet::getId));
+        return trajets;
+    }
+
+    /**
+     * Ids of the buses assigned to at least one trajet
+     */
+    public Set<Long> getAssignedBusIds() {
+        return busIndex.keys();
+    }
+
+    /**
+     * Ids of the chauffeurs assigned to at least one trajet
+     */
+    public Set<Long> getAssignedChauffeurIds() {
+        return chauffeurIndex.keys();
     }
 
     /**
      * Update trajet
      */
     public Trajet updateTrajet(Trajet trajet) {
-        List<Trajet> all = findAll();
         trajet.setUpdatedAt(LocalDateTime.now());
 
-        boolean updated = false;
-        for (int i = 0; i < all.size(); i++) {
-            if (all.get(i).getId().equals(trajet.getId())) {
-                all.set(i, trajet);
-                updated = true;
-                break;
-            }
-        }
-
-        if (updated) {
-            persistenceService.saveAll(all, Trajet.class);
+        // Read under the same lock as the update, so it is the value replaced
+        Trajet previous = persistenceService.write(Trajet.class, () -> {
+            Trajet stored = findById(trajet.getId());
+            return stored != null && persistenceService.update(trajet, Trajet.class) ? stored : null;
+        });
+        if (previous != null) {
+            invalidateAvailability(previous, trajet);
             LOGGER.info("Updated trajet in JSON: " + trajet.getId());
         }
 
         return trajet;
     }
 
+    /**
+     * Apply a JSON Merge Patch to a trajet; returns null if it does not exist.
+     * Throws VersionConflictException if {@code expectedVersion} is stale.
+     */
+    public Trajet patchTrajet(Long id, JsonObject patch, Long expectedVersion) {
+        JsonObject delta = Json.createObjectBuilder(patch)
+                .add("updatedAt", LocalDateTime.now().toString())
+                .build();
+        return persistenceService.write(Trajet.class, () -> {
+            Trajet previous = findById(id);
+            Trajet patched = persistenceService.patch(Trajet.class, id, delta, expectedVersion);
+            if (patched != null) {
+                invalidateAvailability(previous, patched);
+                LOGGER.info("Patched trajet " + id + ": " + patch.keySet());
+            }
+            return patched;
+        });
+    }
+
     /**
      * Assign bus to trajet
      */
     public void assignBus(Long trajetId, Long busId) {
-        Trajet trajet = findById(trajetId);
-        if (trajet != null) {
-            trajet.setBusId(busId);
-            try {
-                String busDetails = busServiceClient.getBusDetails(busId);
-                if (busDetails != null && busDetails.contains("\"number\":\"")) {
-                    String number = busDetails.split("\"number\":\"")[1].split("\"")[0];
-                    trajet.setBusNumber(number);
-                } else {
-                    trajet.setBusNumber("Bus #" + busId + " (Indisponible)");
-                }
-            } catch (Exception e) {
-                trajet.setBusNumber("Bus #" + busId + " (Indisponible)");
+        if (findById(trajetId) == null) {
+            return;
+        }
+        String busNumber = resolveBusNumber(busId);
+
+        Trajet trajet = persistenceService.write(Trajet.class, () -> {
+            Trajet current = findById(trajetId);
+            if (current != null) {
+                current.setBusId(busId);
+                current.setBusNumber(busNumber);
+                updateTrajet(current);
             }
-            updateTrajet(trajet);
+            return current;
+        });
+        if (trajet != null) {
             LOGGER.info("Assigned bus " + busId + " to trajet " + trajetId);
         }
     }
@@ -208,76 +357,229 @@ public class TrajetService {
      * Assign chauffeur to trajet
      */
     public void assignChauffeur(Long trajetId, Long chauffeurId) {
-        Trajet trajet = findById(trajetId);
-        if (trajet != null) {
-            trajet.setChauffeurId(chauffeurId);
-            try {
-                String chauffeurDetails = chauffeurServiceClient.getChauffeurDetails(chauffeurId);
-                if (chauffeurDetails != null && chauffeurDetails.contains("\"name\":\"")) {
-                    String name = chauffeurDetails.split("\"name\":\"")[1].split("\"")[0];
-                    trajet.setChauffeurName(name);
-                } else {
-                    trajet.setChauffeurName("Chauffeur #" + chauffeurId + " (Indisponible)");
-                }
-            } catch (Exception e) {
-                trajet.setChauffeurName("Chauffeur #" + chauffeurId + " (Indisponible)");
+        if (findById(trajetId) == null) {
+            return;
+        }
+        String chauffeurName = resolveChauffeurName(chauffeurId);
+
+        Trajet trajet = persistenceService.write(Trajet.class, () -> {
+            Trajet current = findById(trajetId);
+            if (current != null) {
+                current.setChauffeurId(chauffeurId);
+                current.setChauffeurName(chauffeurName);
+                updateTrajet(current);
             }
-            updateTrajet(trajet);
+            return current;
+        });
+        if (trajet != null) {
             LOGGER.info("Assigned chauffeur " + chauffeurId + " to trajet " + trajetId);
         }
     }
 
     /**
-     * Start a trajet (change status to IN_PROGRESS)
+     * Set bus and chauffeur ids on a trajet in one locked update; a trajet
+     * that already has both is left untouched
      */
-    public void startTrajet(Long id) {
-        Trajet trajet = findById(id);
+    public void assignResources(Long trajetId, Long busId, Long chauffeurId) {
+        persistenceService.write(Trajet.class, () -> {
+            Trajet trajet = findById(trajetId);
+            if (trajet != null && !(Objects.equals(trajet.getBusId(), busId)
+                    && Objects.equals(trajet.getChauffeurId(), chauffeurId))) {
+                trajet.setBusId(busId);
+                trajet.setChauffeurId(chauffeurId);
+                updateTrajet(trajet);
+            }
+        });
+    }
+
+    /**
+     * Link an existing trajet to a reservation
+     */
+    public void linkReservation(Long trajetId, Long reservationId) {
+        persistenceService.write(Trajet.class, () -> {
+            Trajet trajet = findById(trajetId);
+            if (trajet != null) {
+                trajet.setReservationId(reservationId);
+                updateTrajet(trajet);
+            }
+        });
+    }
+
+    /**
+     * Cached availability of the trajet's bus and chauffeur on its day is
+     * stale once the trajet is created or changed here
+     */
+    private void invalidateAvailability(Trajet trajet) {
+        if (trajet == null || trajet.getDepartureDate() == null) {
+            return;
+        }
+        String date = trajet.getDepartureDate().toString();
+        busServiceClient.invalidateBusAvailability(trajet.getBusId(), date);
+        chauffeurServiceClient.invalidateChauffeurAvailability(trajet.getChauffeurId(), date);
+    }
+
+    /**
+     * A trajet that moved away or was deleted freed its bus and chauffeur on
+     * a day the cache may hold under another key: drop all their days
+     */
+    private void invalidateAllDays(Trajet trajet) {
         if (trajet != null) {
-            if (trajet.getBusId() == null || trajet.getChauffeurId() == null) {
-                throw new IllegalStateException(
-                        "Un bus et un chauffeur doivent être assignés avant de démarrer le trajet.");
+            busServiceClient.invalidateBusAvailability(trajet.getBusId());
+            chauffeurServiceClient.invalidateChauffeurAvailability(trajet.getChauffeurId());
+        }
+    }
+
+    /**
+     * After an update only the answers for a bus or chauffeur the trajet
+     * gained or lost are stale, unless the day or the status changed (a
+     * cancellation frees both); an update that keeps all of them (a rename,
+     * a link to a reservation) leaves the cache alone
+     */
+    private void invalidateAvailability(Trajet previous, Trajet current) {
+        if (previous == null || previous.getDepartureDate() == null || current.getDepartureDate() == null
+                || !previous.getDepartureDate().toLocalDate().equals(current.getDepartureDate().toLocalDate())) {
+            invalidateAllDays(previous);
+            invalidateAvailability(current);
+            return;
+        }
+        if (!Objects.equals(normalizeStatus(previous.getStatus()), normalizeStatus(current.getStatus()))) {
+            invalidateAvailability(previous);
+            invalidateAvailability(current);
+            return;
+        }
+        String date = current.getDepartureDate().toString();
+        if (!Objects.equals(previous.getBusId(), current.getBusId())) {
+            busServiceClient.invalidateBusAvailability(previous.getBusId(), date);
+            busServiceClient.invalidateBusAvailability(current.getBusId(), date);
+        }
+        if (!Objects.equals(previous.getChauffeurId(), current.getChauffeurId())) {
+            chauffeurServiceClient.invalidateChauffeurAvailability(previous.getChauffeurId(), date);
+            chauffeurServiceClient.invalidateChauffeurAvailability(current.getChauffeurId(), date);
+        }
+    }
+
+    /**
+     * Bus number from Service 1, or a placeholder when it cannot be reached
+     */
+    private String resolveBusNumber(Long busId) {
+        try {
+            return busNumber(busId, busServiceClient.getBusDetails(busId));
+        } catch (Exception e) {
+            return busNumber(busId, null);
+        }
+    }
+
+    /**
+     * Chauffeur name from Service 2, or a placeholder when it cannot be reached
+     */
+    private String resolveChauffeurName(Long chauffeurId) {
+        try {
+            return chauffeurName(chauffeurId, chauffeurServiceClient.getChauffeurDetails(chauffeurId));
+        } catch (Exception e) {
+            return chauffeurName(chauffeurId, null);
+        }
+    }
+
+    /**
+     * Fill in missing bus numbers and chauffeur names of a batch of trajets
+     * with one batched lookup per service
+     */
+    private void resolveResourceNames(List<Trajet> trajets) {
+        Set<Long> busIds = trajets.stream()
+                .filter(trajet -> trajet.getBusId() != null && trajet.getBusNumber() == null)
+                .map(Trajet::getBusId)
+                .collect(Collectors.toSet());
+        Set<Long> chauffeurIds = trajets.stream()
+                .filter(trajet -> trajet.getChauffeurId() != null && trajet.getChauffeurName() == null)
+                .map(Trajet::getChauffeurId)
+                .collect(Collectors.toSet());
+
+        Map<Long, String> busDetails = busIds.isEmpty() ? Map.of() : busServiceClient.getBusDetails(busIds);
+        Map<Long, String> chauffeurDetails = chauffeurIds.isEmpty() ? Map.of()
+                : chauffeurServiceClient.getChauffeurDetails(chauffeurIds);
+        for (Trajet trajet : trajets) {
+            if (busIds.contains(trajet.getBusId()) && trajet.getBusNumber() == null) {
+                trajet.setBusNumber(busNumber(trajet.getBusId(), busDetails.get(trajet.getBusId())));
+            }
+            if (chauffeurIds.contains(trajet.getChauffeurId()) && trajet.getChauffeurName() == null) {
+                trajet.setChauffeurName(chauffeurName(trajet.getChauffeurId(),
+                        chauffeurDetails.get(trajet.getChauffeurId())));
             }
-            trajet.setStatus("IN_PROGRESS");
-            trajet.setActualDepartureDate(LocalDateTime.now());
-            updateTrajet(trajet);
-            LOGGER.info("Started trajet: " + id);
         }
     }
 
+    private static String busNumber(Long busId, String busDetails) {
+        if (busDetails != null && busDetails.contains("\"number\":\"")) {
+            return busDetails.split("\"number\":\"")[1].split("\"")[0];
+        }
+        return "Bus #" + busId + " (Indisponible)";
+    }
+
+    private static String chauffeurName(Long chauffeurId, String chauffeurDetails) {
+        if (chauffeurDetails != null && chauffeurDetails.contains("\"name\":\"")) {
+            return chauffeurDetails.split("\"name\":\"")[1].split("\"")[0];
+        }
+        return "Chauffeur #" + chauffeurId + " (Indisponible)";
+    }
+
+    /**
+     * Start a trajet (change status to IN_PROGRESS)
+     */
+    public void startTrajet(Long id) {
+        persistenceService.write(Trajet.class, () -> {
+            Trajet trajet = findById(id);
+            if (trajet != null) {
+                if (trajet.getBusId() == null || trajet.getChauffeurId() == null) {
+                    throw new IllegalStateException(
+                            "Un bus et un chauffeur doivent être assignés avant de démarrer le trajet.");
+                }
+                trajet.setStatus("IN_PROGRESS");
+                trajet.setActualDepartureDate(LocalDateTime.now());
+                updateTrajet(trajet);
+                LOGGER.info("Started trajet: " + id);
+            }
+        });
+    }
+
     /**
      * Complete a trajet
      */
     public void completeTrajet(Long id) {
-        Trajet trajet = findById(id);
-        if (trajet != null) {
-            trajet.setStatus("COMPLETED");
-            trajet.setActualArrivalDate(LocalDateTime.now());
-            updateTrajet(trajet);
-            LOGGER.info("Completed trajet: " + id);
-        }
+        persistenceService.write(Trajet.class, () -> {
+            Trajet trajet = findById(id);
+            if (trajet != null) {
+                trajet.setStatus("COMPLETED");
+                trajet.setActualArrivalDate(LocalDateTime.now());
+                updateTrajet(trajet);
+                LOGGER.info("Completed trajet: " + id);
+            }
+        });
     }
 
     /**
      * Cancel a trajet
      */
     public void cancelTrajet(Long id) {
-        Trajet trajet = findById(id);
-        if (trajet != null) {
-            trajet.setStatus("CANCELLED");
-            updateTrajet(trajet);
-            LOGGER.info("Cancelled trajet: " + id);
-        }
+        persistenceService.write(Trajet.class, () -> {
+            Trajet trajet = findById(id);
+            if (trajet != null) {
+                trajet.setStatus("CANCELLED");
+                updateTrajet(trajet);
+                LOGGER.info("Cancelled trajet: " + id);
+            }
+        });
     }
 
     /**
      * Delete a trajet
      */
     public void deleteTrajet(Long id) {
-        List<Trajet> all = findAll();
-        boolean removed = all.removeIf(t -> t.getId().equals(id));
-
-        if (removed) {
-            persistenceService.saveAll(all, Trajet.class);
+        Trajet trajet = persistenceService.write(Trajet.class, () -> {
+            Trajet stored = findById(id);
+            return stored != null && persistenceService.delete(Trajet.class, id) ? stored : null;
+        });
+        if (trajet != null) {
+            invalidateAllDays(trajet);
             LOGGER.info("Deleted trajet from JSON: " + id);
         }
     }
@@ -286,17 +588,27 @@ public class TrajetService {
      * Get planned trajets count
      */
     public long getPlannedTrajetsCount() {
-        return findAll().stream()
-                .filter(t -> "PLANNED".equalsIgnoreCase(t.getStatus()))
-                .count();
+        return statusIndex.count("PLANNED");
+    }
+
+    /**
+     * Get in-progress trajets count
+     */
+    public long getInProgressTrajetsCount() {
+        return statusIndex.count("IN_PROGRESS");
+    }
+
+    /**
+     * Get total trajets count
+     */
+    public long getTotalTrajetsCount() {
+        return persistenceService.count(Trajet.class);
     }
 
     /**
      * Get completed trajets count
      */
     public long getCompletedTrajetsCount() {
-        return findAll().stream()
-                .filter(t -> "COMPLETED".equalsIgnoreCase(t.getStatus()))
-                .count();
+        return statusIndex.count("COMPLETED");
     }
 }
@@ -0,0 +1,22 @@
+package com.jakarta.udb.agencetransportpart3.service;
+
+/**
+ * Thrown when an update carries a version that no longer matches the
+ * stored entity: someone else updated it in the meantime.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long currentVersion;
+
+    public VersionConflictException(String type, Long id, Long expectedVersion, long currentVersion) {
+        super(type + " " + id + " was modified concurrently (expected version " + expectedVersion
+                + ", current " + currentVersion + ")");
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
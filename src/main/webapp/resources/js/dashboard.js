@@ -0,0 +1,119 @@
+/*
+ * Live dashboard: subscribes to api/stream/dashboard and patches the page in
+ * place instead of reloading it.
+ *  - [data-live="key"] elements show the counter of the same key
+ *  - rows marked [data-trajet-id] / [data-reservation-id] get their
+ *    [data-field="name"] cells updated, and are removed when deleted; their
+ *    [data-status-badge] element gets the colour of the new status
+ *  - creations cannot be rendered here (JSF actions): a notice offers a
+ *    reload, which only adds the changed rows; after a "reset" it asks for
+ *    the full lists (?refresh=true)
+ */
+(function () {
+    'use strict';
+
+    if (!window.EventSource || !document.querySelector('[data-live], [data-live-rows]')) {
+        return;
+    }
+
+    // Same classes as the status badges of trajets.xhtml / reservations.xhtml
+    var STATUS_CLASSES = {
+        trajet: {
+            PLANNED: 'bg-soft-info text-info',
+            IN_PROGRESS: 'bg-soft-warning text-warning',
+            COMPLETED: 'bg-soft-success text-success',
+            '': 'bg-soft-danger text-danger'
+        },
+        reservation: {
+            PENDING: 'bg-warning text-dark',
+            CONFIRMED: 'bg-success',
+            CANCELLED: 'bg-danger',
+            '': 'bg-info'
+        }
+    };
+
+    var source = new EventSource('api/stream/dashboard');
+
+    source.addEventListener('counts', function (e) {
+        var counts = JSON.parse(e.data);
+        Object.keys(counts).forEach(function (key) {
+            document.querySelectorAll('[data-live="' + key + '"]').forEach(function (el) {
+                el.textContent = counts[key];
+            });
+        });
+    });
+
+    source.addEventListener('trajet', function (e) {
+        applyChange('trajet', JSON.parse(e.data));
+    });
+
+    source.addEventListener('reservation', function (e) {
+        applyChange('reservation', JSON.parse(e.data));
+    });
+
+    source.addEventListener('reset', function () {
+        showNotice(true);
+    });
+
+    function applyChange(kind, change) {
+        var marker = document.querySelector('[data-' + kind + '-id="' + change.entityId + '"]');
+        var row = marker ? marker.closest('tr') : null;
+
+        if (change.type === 'DELETED' || change.type === 'ARCHIVED') {
+            if (row) {
+                row.remove();
+            }
+            return;
+        }
+        if (!row) {
+            if (change.type === 'CREATED' && document.querySelector('[data-live-rows="' + kind + '"]')) {
+                showNotice(false);
+            }
+            return;
+        }
+
+        row.querySelectorAll('[data-field]').forEach(function (el) {
+            var value = change.entity ? change.entity[el.getAttribute('data-field')] : null;
+            el.textContent = value !== null && value !== undefined ? value : (el.getAttribute('data-empty') || '');
+        });
+        row.querySelectorAll('[data-status-badge]').forEach(function (el) {
+            updateStatusBadge(el, change.entity ? change.entity.status : null);
+        });
+        row.classList.add('table-active');
+        setTimeout(function () {
+            row.classList.remove('table-active');
+        }, 1500);
+    }
+
+    function updateStatusBadge(el, status) {
+        var classes = STATUS_CLASSES[el.getAttribute('data-status-badge')];
+        if (!classes) {
+            return;
+        }
+        Object.keys(classes).forEach(function (key) {
+            classes[key].split(' ').forEach(function (name) {
+                el.classList.remove(name);
+            });
+        });
+        (classes[status] || classes['']).split(' ').forEach(function (name) {
+            el.classList.add(name);
+        });
+    }
+
+    function showNotice(full) {
+        var existing = document.getElementById('live-notice');
+        if (existing) {
+            if (full) {
+                existing.querySelector('a').setAttribute('href', '?refresh=true');
+            }
+            return;
+        }
+        var notice = document.createElement('div');
+        notice.id = 'live-notice';
+        notice.className = 'message message-warning';
+        notice.innerHTML = 'De nouvelles données sont disponibles. <a href="' + (full ? '?refresh=true' : '')
+                + '">Actualiser</a>';
+        var messages = document.querySelector('.messages');
+        (messages || document.body).appendChild(notice);
+    }
+})();